@@ -0,0 +1,105 @@
+package com.defi.contracts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.tx.gas.DefaultGasProvider;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calldata encoding and return-data decoding through the generated wrappers,
+ * the CPU work behind every BatchReader call and every submitted transaction.
+ * No node is contacted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AbiCodecBenchmark {
+
+    private static final String POOL = "0xB7f8BC63BbcaD18155201308C8f3540b07f84F5e";
+    private static final String OWNER = "0xf39fd6e51aad88f6f4ce6ab8827279cfffb92266";
+
+    private final BigInteger loanId = BigInteger.valueOf(7);
+    private final BigInteger amount = new BigInteger("1000000000000000000000");
+
+    private Web3j web3j;
+    private LendingPool lendingPool;
+    private AssetToken assetToken;
+    private MockDAI mockDAI;
+
+    private String loanResponse;
+    private String ownerOfResponse;
+
+    @Setup
+    public void setup() {
+        web3j = Web3j.build(new HttpService("http://localhost:8545"));
+        Credentials credentials = Credentials.create("0xac0974bec39a17e36ba4a6b4d238ff944bacb478cbed5efcae784d7bf4f2ff80");
+        DefaultGasProvider gasProvider = new DefaultGasProvider();
+        lendingPool = LendingPool.load(POOL, web3j, credentials, gasProvider);
+        assetToken = AssetToken.load("0x8A791620dd6260079BF849Dc5567aDC3F2FdC318", web3j, credentials, gasProvider);
+        mockDAI = MockDAI.load("0x610178dA211FEF7D417bC0e6FeD39F05609AD788", web3j, credentials, gasProvider);
+
+        loanResponse = returnData(List.of(
+                new Uint256(loanId), new Uint256(BigInteger.valueOf(3)), new Uint256(amount),
+                new Uint256(BigInteger.valueOf(1_700_000_000L)), new Uint256(amount.divide(BigInteger.valueOf(20))),
+                new Bool(true)));
+        ownerOfResponse = returnData(List.of(new Address(OWNER)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        web3j.shutdown();
+    }
+
+    @Benchmark
+    public String encodeLoans() {
+        return lendingPool.loans(loanId).encodeFunctionCall();
+    }
+
+    @Benchmark
+    public List<Type> decodeLoans() {
+        return lendingPool.loans(loanId).decodeFunctionResponse(loanResponse);
+    }
+
+    @Benchmark
+    public String encodeOwnerOf() {
+        return assetToken.ownerOf(loanId).encodeFunctionCall();
+    }
+
+    @Benchmark
+    public List<Type> decodeOwnerOf() {
+        return assetToken.ownerOf(loanId).decodeFunctionResponse(ownerOfResponse);
+    }
+
+    @Benchmark
+    public String encodeApprove() {
+        return mockDAI.approve(POOL, amount).encodeFunctionCall();
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static String returnData(List<Type> values) {
+        return "0x" + FunctionEncoder.encodeConstructor(values);
+    }
+}
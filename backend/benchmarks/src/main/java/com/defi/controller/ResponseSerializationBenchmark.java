@@ -0,0 +1,77 @@
+package com.defi.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the /my-assets and /my-loans bodies, built the
+ * same way LendingController builds them, with the ObjectMapper Spring MVC
+ * would use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private ObjectMapper mapper;
+    private List<Map<String, Object>> assets;
+    private List<Map<String, Object>> loans;
+
+    @Setup
+    public void setup() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        assets = new ArrayList<>(size);
+        loans = new ArrayList<>(size);
+        BigInteger amount = new BigInteger("1000000000000000000000");
+        for (int i = 1; i <= size; i++) {
+            BigInteger id = BigInteger.valueOf(i);
+
+            Map<String, Object> asset = new HashMap<>();
+            asset.put("tokenId", id);
+            asset.put("tokenURI", "ipfs://bafybeigdyrzt5sfp7udm7hu76uh7y26nf3efuylqabf3oclgtqy55fbzdi/" + i + ".json");
+            assets.add(asset);
+
+            Map<String, Object> loanInfo = new HashMap<>();
+            loanInfo.put("loanId", id);
+            loanInfo.put("amount", amount);
+            loanInfo.put("interestDue", amount.divide(BigInteger.valueOf(20)));
+            loanInfo.put("status", "ACTIVE");
+            loans.add(loanInfo);
+        }
+    }
+
+    @Benchmark
+    public byte[] myAssets() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(assets);
+    }
+
+    @Benchmark
+    public byte[] myLoans() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(loans);
+    }
+}
@@ -0,0 +1,47 @@
+package com.defi.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Oracle quote signing: the cached path /api/valuation takes for a repeated
+ * quote, the full keccak + ECDSA path behind it, and the address lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoUtilBenchmark {
+
+    private static final String VALUATION_WEI = "2000000000000000000000";
+
+    private final BigInteger valuation = new BigInteger(VALUATION_WEI);
+    private long nextTokenId = 1;
+
+    @Benchmark
+    public String signMessageCached() {
+        return CryptoUtil.signMessage("42", VALUATION_WEI);
+    }
+
+    @Benchmark
+    public String signMessageUncached() {
+        return CryptoUtil.getSigner().signUncached(BigInteger.valueOf(nextTokenId++), valuation);
+    }
+
+    @Benchmark
+    public String getOracleAddress() {
+        return CryptoUtil.getOracleAddress();
+    }
+}
@@ -0,0 +1,490 @@
+package com.defi.chainsim;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JSON-RPC stand-in for the Hardhat node, with AssetToken, MockDAI and
+ * LendingPool already deployed at the addresses in the backend's
+ * application.properties. Every HTTP request (a whole batch counts as one)
+ * is delayed by latency ± jitter, and each call fails with the configured
+ * error rate, so backend throughput and tail latency can be measured without
+ * a real node's speed in the way.
+ *
+ * <pre>
+ * java -Dchainsim.port=8545 -Dchainsim.latency-ms=20 -Dchainsim.jitter-ms=10 \
+ *      -Dchainsim.error-rate=0.01 -Dchainsim.block-ms=1000 -jar target/chainsim.jar
+ * </pre>
+ *
+ * Options (system properties): port, latency-ms, jitter-ms, error-rate,
+ * block-ms (0 mines every transaction on arrival, like Hardhat's automine),
+ * threads, funded (comma-separated accounts holding mDAI), pool-liquidity
+ * (whole mDAI), ws-port (0 = no WebSocket endpoint; see SimSubscriptions),
+ * log-limit (eth_getLogs fails past this many results, as hosted nodes do;
+ * 0 = no limit). Reads ignore the block tag and always see the latest state.
+ * The extra method chainsim_stats returns call counts per method, and
+ * hardhat_mine mines a number of empty blocks at once.
+ */
+public class ChainSimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(ChainSimulator.class);
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final String DEPLOYER = "0xf39fd6e51aad88f6f4ce6ab8827279cfffb92266";
+    // any non-empty code, so eth_getCode checks see a deployed contract
+    private static final String CONTRACT_CODE = "0x6080604052";
+
+    private final int port;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double errorRate;
+    private final long blockMs;
+    private final int threads;
+    private final int wsPort;
+    private final int logLimit;
+
+    private final SimChain chain;
+    private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private ScheduledExecutorService miner;
+    private SimSubscriptions subscriptions;
+
+    public ChainSimulator(int port, long latencyMs, long jitterMs, double errorRate, long blockMs, int threads,
+                          List<String> funded, long poolLiquidity, int wsPort, int logLimit) {
+        this.port = port;
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+        this.blockMs = blockMs;
+        this.threads = threads;
+        this.wsPort = wsPort;
+        this.logLimit = logLimit;
+        BigInteger liquidity = BigInteger.valueOf(poolLiquidity).multiply(BigInteger.TEN.pow(18));
+        this.chain = new SimChain(new SimContracts(funded, liquidity), blockMs <= 0);
+    }
+
+    public static void main(String[] args) throws IOException {
+        ChainSimulator simulator = new ChainSimulator(
+                Integer.getInteger("chainsim.port", 8545),
+                Long.getLong("chainsim.latency-ms", 0),
+                Long.getLong("chainsim.jitter-ms", 0),
+                Double.parseDouble(System.getProperty("chainsim.error-rate", "0")),
+                Long.getLong("chainsim.block-ms", 0),
+                Integer.getInteger("chainsim.threads", 256),
+                List.of(System.getProperty("chainsim.funded", DEPLOYER).split(",")),
+                Long.getLong("chainsim.pool-liquidity", 1_000_000),
+                Integer.getInteger("chainsim.ws-port", 0),
+                Integer.getInteger("chainsim.log-limit", 10_000));
+        simulator.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(simulator::stop));
+    }
+
+    public void start() throws IOException {
+        handlers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "chainsim-http");
+            t.setDaemon(true);
+            return t;
+        });
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/", this::handle);
+        server.setExecutor(handlers);
+        server.start();
+
+        if (wsPort > 0) {
+            subscriptions = new SimSubscriptions(wsPort, this);
+            chain.addMiningListener(subscriptions::onMined);
+            subscriptions.start();
+        }
+        if (blockMs > 0) {
+            miner = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "chainsim-miner");
+                t.setDaemon(true);
+                return t;
+            });
+            miner.scheduleAtFixedRate(chain::mine, blockMs, blockMs, TimeUnit.MILLISECONDS);
+        }
+        log.info("Chain simulator on port {}: latency {}±{} ms, error rate {}, {}", port, latencyMs, jitterMs, errorRate,
+                blockMs > 0 ? "block every " + blockMs + " ms" : "automine");
+    }
+
+    public void stop() {
+        if (miner != null) {
+            miner.shutdownNow();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+        if (subscriptions != null) {
+            try {
+                subscriptions.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (handlers != null) {
+            handlers.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            JsonNode request;
+            try (InputStream in = exchange.getRequestBody()) {
+                request = JSON.readTree(in);
+            } catch (JsonProcessingException e) {
+                request = null;
+            }
+
+            // malformed requests get a JSON-RPC error and a 400 rather than no answer at all
+            if (request == null || request.isMissingNode()) {
+                respond(exchange, 400, error(-32700, "parse error"));
+            } else if (request.isArray() && !request.isEmpty()) {
+                ArrayNode responses = NODES.arrayNode(request.size());
+                for (JsonNode call : request) {
+                    responses.add(dispatch(call));
+                }
+                respond(exchange, 200, responses);
+            } else if (request.isObject()) {
+                respond(exchange, 200, dispatch(request));
+            } else {
+                respond(exchange, 400, error(-32600, "invalid request"));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not answer request", e);
+            if (exchange.getResponseCode() == -1) {
+                exchange.sendResponseHeaders(500, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, JsonNode response) throws IOException {
+        delay();
+        byte[] body = JSON.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static ObjectNode error(int code, String message) {
+        ObjectNode response = NODES.objectNode();
+        response.put("jsonrpc", "2.0");
+        response.putNull("id");
+        ObjectNode error = response.putObject("error");
+        error.put("code", code);
+        error.put("message", message);
+        return response;
+    }
+
+    private void delay() {
+        long millis = latencyMs;
+        if (jitterMs > 0) {
+            millis += ThreadLocalRandom.current().nextLong(-jitterMs, jitterMs + 1);
+        }
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    ObjectNode dispatch(JsonNode call) {
+        String method = call.path("method").asText();
+        JsonNode params = call.path("params");
+        calls.computeIfAbsent(method, m -> new LongAdder()).increment();
+
+        ObjectNode response = NODES.objectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", call.get("id"));
+        try {
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                throw new SimChain.RpcException(-32603, "chainsim: simulated node error");
+            }
+            response.set("result", execute(method, params));
+        } catch (SimChain.RpcException e) {
+            ObjectNode error = response.putObject("error");
+            error.put("code", e.code);
+            error.put("message", e.getMessage());
+            if (e.data != null) {
+                error.put("data", e.data);
+            }
+        } catch (RuntimeException e) {
+            ObjectNode error = response.putObject("error");
+            error.put("code", -32602);
+            error.put("message", "invalid params: " + e.getMessage());
+        }
+        return response;
+    }
+
+    private JsonNode execute(String method, JsonNode params) {
+        switch (method) {
+            case "eth_chainId":
+                return quantity(SimChain.CHAIN_ID);
+            case "net_version":
+                return NODES.textNode(Long.toString(SimChain.CHAIN_ID));
+            case "web3_clientVersion":
+                return NODES.textNode("chainsim/0.0.1");
+            case "eth_blockNumber":
+                return quantity(chain.blockNumber());
+            case "eth_gasPrice":
+                return quantity(20_000_000_000L);
+            case "eth_estimateGas":
+                return quantity(SimChain.gasUsed().longValue() * 3);
+            case "eth_getBalance":
+                return NODES.textNode(Numeric.toHexStringWithPrefix(BigInteger.TEN.pow(22)));
+            case "eth_getCode":
+                return NODES.textNode(SimContracts.isContract(params.get(0).asText()) ? CONTRACT_CODE : "0x");
+            case "eth_getTransactionCount":
+                return quantity(chain.transactionCount(params.get(0).asText(), "pending".equals(params.path(1).asText())));
+            case "eth_call":
+                return ethCall(params.get(0));
+            case "eth_sendRawTransaction":
+                return NODES.textNode(chain.sendRawTransaction(params.get(0).asText()));
+            case "eth_getTransactionReceipt":
+                return receipt(params.get(0).asText());
+            case "eth_getTransactionByHash":
+                return transaction(params.get(0).asText());
+            case "eth_getBlockByNumber":
+                return block(params.get(0).asText());
+            case "eth_getLogs":
+                return logs(params.get(0));
+            case "evm_mine":
+                chain.mine();
+                return NODES.textNode("0x0");
+            case "hardhat_mine":
+                long blocks = params.path(0).isMissingNode() ? 1 : Numeric.decodeQuantity(params.get(0).asText()).longValueExact();
+                for (long i = 0; i < blocks; i++) {
+                    chain.mine();
+                }
+                return NODES.booleanNode(true);
+            case "chainsim_stats":
+                return stats();
+            case "chainsim_dropSubscriptions":
+                if (subscriptions != null) {
+                    subscriptions.dropAll();
+                }
+                return NODES.booleanNode(subscriptions != null);
+            default:
+                throw new SimChain.RpcException(-32601, "the method " + method + " does not exist/is not available");
+        }
+    }
+
+    private JsonNode ethCall(JsonNode tx) {
+        String data = tx.hasNonNull("data") ? tx.get("data").asText() : tx.path("input").asText();
+        try {
+            return NODES.textNode(chain.call(tx.path("from").asText(null), tx.get("to").asText(), data));
+        } catch (SimContracts.Revert e) {
+            throw new SimChain.RpcException(3, "execution reverted: " + e.getMessage(), SimContracts.encodeRevert(e.getMessage()));
+        }
+    }
+
+    private JsonNode receipt(String hash) {
+        synchronized (chain) {
+            SimChain.Tx tx = chain.transaction(hash);
+            if (tx == null || !tx.isMined()) {
+                return NODES.nullNode();
+            }
+            ObjectNode receipt = NODES.objectNode();
+            receipt.put("transactionHash", tx.hash);
+            receipt.set("transactionIndex", quantity(tx.index));
+            receipt.put("blockHash", SimChain.blockHash(tx.blockNumber));
+            receipt.set("blockNumber", quantity(tx.blockNumber));
+            receipt.put("from", tx.from);
+            receipt.put("to", tx.to);
+            receipt.set("cumulativeGasUsed", quantity(SimChain.gasUsed().longValue() * (tx.index + 1)));
+            receipt.set("gasUsed", quantity(SimChain.gasUsed().longValue()));
+            receipt.set("effectiveGasPrice", quantity(tx.gasPrice == null ? BigInteger.ZERO : tx.gasPrice));
+            receipt.putNull("contractAddress");
+            receipt.put("logsBloom", "0x" + "0".repeat(512));
+            receipt.put("type", "0x0");
+            receipt.put("status", tx.success ? "0x1" : "0x0");
+            if (tx.revertReason != null) {
+                receipt.put("revertReason", SimContracts.encodeRevert(tx.revertReason));
+            }
+            ArrayNode logs = receipt.putArray("logs");
+            for (SimChain.LogEntry entry : tx.logs) {
+                logs.add(log(entry));
+            }
+            return receipt;
+        }
+    }
+
+    private JsonNode transaction(String hash) {
+        synchronized (chain) {
+            SimChain.Tx tx = chain.transaction(hash);
+            if (tx == null) {
+                return NODES.nullNode();
+            }
+            ObjectNode node = NODES.objectNode();
+            node.put("hash", tx.hash);
+            node.set("nonce", quantity(tx.nonce));
+            if (tx.isMined()) {
+                node.put("blockHash", SimChain.blockHash(tx.blockNumber));
+                node.set("blockNumber", quantity(tx.blockNumber));
+                node.set("transactionIndex", quantity(tx.index));
+            } else {
+                node.putNull("blockHash");
+                node.putNull("blockNumber");
+                node.putNull("transactionIndex");
+            }
+            node.put("from", tx.from);
+            node.put("to", tx.to);
+            node.set("value", quantity(tx.value == null ? BigInteger.ZERO : tx.value));
+            node.set("gasPrice", quantity(tx.gasPrice == null ? BigInteger.ZERO : tx.gasPrice));
+            node.set("gas", quantity(tx.gasLimit == null ? BigInteger.ZERO : tx.gasLimit));
+            node.put("input", tx.input == null ? "0x" : Numeric.prependHexPrefix(tx.input));
+            node.put("type", "0x0");
+            return node;
+        }
+    }
+
+    private JsonNode block(String tag) {
+        synchronized (chain) {
+            long number = blockNumber(tag, chain.blockNumber());
+            SimChain.Block block = chain.block(number);
+            if (block == null) {
+                return NODES.nullNode();
+            }
+            return header(block);
+        }
+    }
+
+    static ObjectNode header(SimChain.Block block) {
+        ObjectNode node = NODES.objectNode();
+        node.set("number", quantity(block.number));
+        node.put("hash", SimChain.blockHash(block.number));
+        node.put("parentHash", block.number == 0 ? "0x" + "0".repeat(64) : SimChain.blockHash(block.number - 1));
+        node.set("timestamp", quantity(block.timestamp));
+        node.set("gasLimit", quantity(30_000_000));
+        node.set("gasUsed", quantity(SimChain.gasUsed().longValue() * block.txs.size()));
+        node.set("baseFeePerGas", quantity(0));
+        node.put("miner", "0x" + "0".repeat(40));
+        node.put("logsBloom", "0x" + "0".repeat(512));
+        ArrayNode txs = node.putArray("transactions");
+        for (SimChain.Tx tx : block.txs) {
+            txs.add(tx.hash);
+        }
+        node.putArray("uncles");
+        return node;
+    }
+
+    private JsonNode logs(JsonNode filter) {
+        synchronized (chain) {
+            long head = chain.blockNumber();
+            long from = blockNumber(filter.path("fromBlock").asText("latest"), head);
+            long to = blockNumber(filter.path("toBlock").asText("latest"), head);
+
+            Set<String> addresses = new HashSet<>();
+            JsonNode address = filter.path("address");
+            if (address.isArray()) {
+                address.forEach(a -> addresses.add(a.asText().toLowerCase()));
+            } else if (address.isTextual()) {
+                addresses.add(address.asText().toLowerCase());
+            }
+
+            // only the first topic position is filtered on, which is all the backend uses
+            Set<String> topics = new HashSet<>();
+            JsonNode first = filter.path("topics").path(0);
+            if (first.isArray()) {
+                first.forEach(t -> topics.add(t.asText().toLowerCase()));
+            } else if (first.isTextual()) {
+                topics.add(first.asText().toLowerCase());
+            }
+
+            List<SimChain.LogEntry> entries = chain.logs(from, to, addresses, topics);
+            if (logLimit > 0 && entries.size() > logLimit) {
+                // Infura's wording and code; clients look for either
+                throw new SimChain.RpcException(-32005, "query returned more than " + logLimit + " results");
+            }
+            ArrayNode result = NODES.arrayNode();
+            for (SimChain.LogEntry entry : entries) {
+                result.add(log(entry));
+            }
+            return result;
+        }
+    }
+
+    static ObjectNode log(SimChain.LogEntry entry) {
+        ObjectNode node = NODES.objectNode();
+        node.put("removed", false);
+        node.set("logIndex", quantity(entry.logIndex));
+        node.set("transactionIndex", quantity(entry.tx.index));
+        node.put("transactionHash", entry.tx.hash);
+        node.put("blockHash", SimChain.blockHash(entry.tx.blockNumber));
+        node.set("blockNumber", quantity(entry.tx.blockNumber));
+        node.put("address", entry.address);
+        node.put("data", entry.data);
+        ArrayNode topics = node.putArray("topics");
+        entry.topics.forEach(topics::add);
+        return node;
+    }
+
+    private JsonNode stats() {
+        ObjectNode node = NODES.objectNode();
+        node.set("blockNumber", quantity(chain.blockNumber()));
+        ObjectNode counts = node.putObject("calls");
+        new TreeMap<>(calls).forEach((method, count) -> counts.put(method, count.sum()));
+        return node;
+    }
+
+    private static long blockNumber(String tag, long head) {
+        switch (tag) {
+            case "latest":
+            case "pending":
+            case "safe":
+            case "finalized":
+                return head;
+            case "earliest":
+                return 0;
+            default:
+                return Numeric.decodeQuantity(tag).longValueExact();
+        }
+    }
+
+    private static JsonNode quantity(long value) {
+        return NODES.textNode("0x" + Long.toHexString(value));
+    }
+
+    private static JsonNode quantity(BigInteger value) {
+        return NODES.textNode(Numeric.toHexStringWithPrefix(value));
+    }
+}
@@ -0,0 +1,261 @@
+package com.defi.chainsim;
+
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.SignedRawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Blocks, transaction pool and receipts around SimContracts. Transactions
+ * wait in the pool until the next block is mined (or are mined immediately
+ * in automine mode); nonce gaps are held back until they are filled, like a
+ * real node does. All methods are synchronized.
+ */
+class SimChain {
+
+    static final long CHAIN_ID = 31337;
+    private static final BigInteger GAS_USED = BigInteger.valueOf(100_000);
+
+    private final SimContracts contracts;
+    private final boolean automine;
+
+    private final List<Block> blocks = new ArrayList<>();
+    private final Map<String, Tx> txsByHash = new HashMap<>();
+    private final List<Tx> pool = new ArrayList<>();
+    private final Map<String, TreeMap<Long, Tx>> queued = new HashMap<>();
+    private final Map<String, Long> pendingNonces = new HashMap<>();
+    private final Map<String, Long> minedNonces = new HashMap<>();
+    private final List<Consumer<Block>> miningListeners = new CopyOnWriteArrayList<>();
+
+    SimChain(SimContracts contracts, boolean automine) {
+        this.contracts = contracts;
+        this.automine = automine;
+        blocks.add(new Block(0, System.currentTimeMillis() / 1000, List.of()));
+    }
+
+    // called with the chain locked, right after each block is added
+    void addMiningListener(Consumer<Block> listener) {
+        miningListeners.add(listener);
+    }
+
+    synchronized long blockNumber() {
+        return blocks.size() - 1;
+    }
+
+    synchronized Block block(long number) {
+        return number >= 0 && number < blocks.size() ? blocks.get((int) number) : null;
+    }
+
+    synchronized long transactionCount(String address, boolean pending) {
+        String key = address.toLowerCase();
+        return (pending ? pendingNonces : minedNonces).getOrDefault(key, 0L);
+    }
+
+    synchronized String call(String from, String to, String data) {
+        return contracts.call(from, to, data, blocks.size() - 1);
+    }
+
+    synchronized Tx transaction(String hash) {
+        return txsByHash.get(hash.toLowerCase());
+    }
+
+    /**
+     * Accepts a signed legacy or typed transaction and returns its hash.
+     */
+    synchronized String sendRawTransaction(String raw) {
+        RawTransaction decoded = TransactionDecoder.decode(raw);
+        if (!(decoded instanceof SignedRawTransaction signed)) {
+            throw new RpcException(-32000, "transaction is not signed");
+        }
+        String from;
+        try {
+            from = signed.getFrom().toLowerCase();
+        } catch (SignatureException e) {
+            throw new RpcException(-32000, "invalid sender");
+        }
+
+        String hash = Numeric.toHexString(Hash.sha3(Numeric.hexStringToByteArray(raw)));
+        if (txsByHash.containsKey(hash)) {
+            throw new RpcException(-32000, "already known");
+        }
+        long nonce = decoded.getNonce().longValueExact();
+        long expected = pendingNonces.getOrDefault(from, 0L);
+        if (nonce < expected) {
+            throw new RpcException(-32000, "nonce too low: next nonce " + expected + ", tx nonce " + nonce);
+        }
+
+        Tx tx = new Tx(hash, from, decoded.getTo() == null ? null : decoded.getTo().toLowerCase(), nonce,
+                decoded.getGasPrice(), decoded.getGasLimit(), decoded.getValue(), decoded.getData());
+        txsByHash.put(hash, tx);
+
+        if (nonce > expected) {
+            queued.computeIfAbsent(from, k -> new TreeMap<>()).put(nonce, tx);
+            return hash;
+        }
+        pool.add(tx);
+        expected++;
+        // a filled gap releases whatever was queued behind it
+        TreeMap<Long, Tx> waiting = queued.get(from);
+        while (waiting != null && waiting.containsKey(expected)) {
+            pool.add(waiting.remove(expected));
+            expected++;
+        }
+        pendingNonces.put(from, expected);
+
+        if (automine) {
+            mine();
+        }
+        return hash;
+    }
+
+    /**
+     * Executes every pooled transaction, in arrival order, into a new block.
+     */
+    synchronized Block mine() {
+        long number = blocks.size();
+        List<Tx> included = new ArrayList<>(pool);
+        pool.clear();
+
+        int logIndex = 0;
+        for (int i = 0; i < included.size(); i++) {
+            Tx tx = included.get(i);
+            List<LogEntry> logs = new ArrayList<>();
+            boolean success = true;
+            if (tx.to != null && SimContracts.isContract(tx.to)) {
+                try {
+                    contracts.execute(tx.from, tx.to, tx.input, number, logs);
+                } catch (SimContracts.Revert e) {
+                    success = false;
+                    tx.revertReason = e.getMessage();
+                    logs.clear();
+                }
+            }
+            for (LogEntry log : logs) {
+                log.logIndex = logIndex++;
+                log.tx = tx;
+            }
+            tx.blockNumber = number;
+            tx.index = i;
+            tx.success = success;
+            tx.logs = logs;
+            minedNonces.merge(tx.from, 1L, Long::sum);
+        }
+
+        Block block = new Block(number, System.currentTimeMillis() / 1000, included);
+        blocks.add(block);
+        for (Consumer<Block> listener : miningListeners) {
+            listener.accept(block);
+        }
+        return block;
+    }
+
+    synchronized List<LogEntry> logs(long fromBlock, long toBlock, Collection<String> addresses, Collection<String> topics) {
+        List<LogEntry> result = new ArrayList<>();
+        long last = Math.min(toBlock, blockNumber());
+        for (long n = Math.max(0, fromBlock); n <= last; n++) {
+            for (Tx tx : blocks.get((int) n).txs) {
+                for (LogEntry log : tx.logs) {
+                    if ((addresses.isEmpty() || addresses.contains(log.address))
+                            && (topics.isEmpty() || topics.contains(log.topics.get(0)))) {
+                        result.add(log);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    static String blockHash(long number) {
+        return Hash.sha3String("chainsim-block-" + number);
+    }
+
+    static BigInteger gasUsed() {
+        return GAS_USED;
+    }
+
+    static final class Block {
+        final long number;
+        final long timestamp;
+        final List<Tx> txs;
+
+        Block(long number, long timestamp, List<Tx> txs) {
+            this.number = number;
+            this.timestamp = timestamp;
+            this.txs = txs;
+        }
+    }
+
+    static final class Tx {
+        final String hash;
+        final String from;
+        final String to;
+        final long nonce;
+        final BigInteger gasPrice;
+        final BigInteger gasLimit;
+        final BigInteger value;
+        final String input;
+
+        // set once mined
+        long blockNumber = -1;
+        int index;
+        boolean success;
+        String revertReason;
+        List<LogEntry> logs = List.of();
+
+        Tx(String hash, String from, String to, long nonce, BigInteger gasPrice, BigInteger gasLimit, BigInteger value, String input) {
+            this.hash = hash;
+            this.from = from;
+            this.to = to;
+            this.nonce = nonce;
+            this.gasPrice = gasPrice;
+            this.gasLimit = gasLimit;
+            this.value = value;
+            this.input = input;
+        }
+
+        boolean isMined() {
+            return blockNumber >= 0;
+        }
+    }
+
+    static final class LogEntry {
+        final String address;
+        final List<String> topics;
+        final String data;
+        int logIndex;
+        Tx tx;
+
+        LogEntry(String address, List<String> topics, String data) {
+            this.address = address;
+            this.topics = topics;
+            this.data = data;
+        }
+    }
+
+    static class RpcException extends RuntimeException {
+        final int code;
+        final String data;
+
+        RpcException(int code, String message) {
+            this(code, message, null);
+        }
+
+        RpcException(int code, String message, String data) {
+            super(message);
+            this.code = code;
+            this.data = data;
+        }
+    }
+}
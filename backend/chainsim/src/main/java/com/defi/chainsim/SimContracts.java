@@ -0,0 +1,502 @@
+package com.defi.chainsim;
+
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.Utils;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.DynamicBytes;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.abi.datatypes.generated.Uint8;
+import org.web3j.crypto.Hash;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State and ABI of AssetToken, MockDAI, LendingPool and LendingMulticall as
+ * the contracts in blockchain/contracts define them, executed in plain Java;
+ * a function the Solidity lacks reverts here too, whatever the generated
+ * wrappers declare.
+ * The exceptions are AssetToken.mint and LendingPool.borrow, served with the
+ * wrappers' older signatures because those are what the backend sends. Every
+ * function checks its requires before writing anything, so a revert never
+ * leaves partial state behind. Not thread-safe; SimChain serializes access.
+ */
+class SimContracts {
+
+    static final String ASSET_TOKEN = "0x8a791620dd6260079bf849dc5567adc3f2fdc318";
+    static final String LENDING_POOL = "0xb7f8bc63bbcad18155201308c8f3540b07f84f5e";
+    static final String MOCK_DAI = "0x610178da211fef7d417bc0e6fed39f05609ad788";
+    // deploy.js deploys it right after LendingPool
+    static final String MULTICALL = "0xa51c1fc2f0d1a1b8494ed1fe312d7c3a78ed91c0";
+
+    static final String TRANSFER_TOPIC = Hash.sha3String("Transfer(address,address,uint256)");
+    static final String APPROVAL_TOPIC = Hash.sha3String("Approval(address,address,uint256)");
+    static final String APPROVAL_FOR_ALL_TOPIC = Hash.sha3String("ApprovalForAll(address,address,bool)");
+    static final String LOAN_CREATED_TOPIC = Hash.sha3String("LoanCreated(uint256,uint256,uint256)");
+    static final String LOAN_REPAID_TOPIC = Hash.sha3String("LoanRepaid(uint256,uint256)");
+    static final String LOAN_LIQUIDATED_TOPIC = Hash.sha3String("LoanLiquidated(uint256)");
+
+    private static final String ZERO = "0x0000000000000000000000000000000000000000";
+    private static final BigInteger DAI = BigInteger.TEN.pow(18);
+    private static final BigInteger MAX_UINT256 = BigInteger.TWO.pow(256).subtract(BigInteger.ONE);
+    private static final BigInteger MAX_LOAN_AMOUNT = BigInteger.valueOf(10_000).multiply(DAI);
+
+    // -------------------------- AssetToken --------------------------
+    private final Map<BigInteger, String> owners = new HashMap<>();
+    private final Map<BigInteger, String> tokenApprovals = new HashMap<>();
+    private final Map<String, Boolean> operatorApprovals = new HashMap<>();
+    private final Map<String, BigInteger> nftBalances = new HashMap<>();
+    private final Map<BigInteger, String> tokenURIs = new HashMap<>();
+    private BigInteger nextTokenId = BigInteger.ONE;
+
+    // -------------------------- MockDAI --------------------------
+    private final Map<String, BigInteger> balances = new HashMap<>();
+    private final Map<String, BigInteger> allowances = new HashMap<>();
+    private BigInteger totalSupply = BigInteger.ZERO;
+
+    // -------------------------- LendingPool --------------------------
+    private final Map<BigInteger, BigInteger[]> loans = new HashMap<>();
+    private final Map<BigInteger, Boolean> loanActive = new HashMap<>();
+    private final Map<BigInteger, BigInteger> tokenToLoanId = new HashMap<>();
+    private BigInteger loanIdCounter = BigInteger.ONE;
+    private BigInteger interestRate = BigInteger.valueOf(500);
+
+    /**
+     * @param fundedAccounts accounts that start with 1,000,000 mDAI, like the deployer does
+     * @param poolLiquidity  mDAI the pool starts with
+     */
+    SimContracts(List<String> fundedAccounts, BigInteger poolLiquidity) {
+        for (String account : fundedAccounts) {
+            mint(account.toLowerCase(), BigInteger.valueOf(1_000_000).multiply(DAI));
+        }
+        mint(LENDING_POOL, poolLiquidity);
+    }
+
+    static boolean isContract(String address) {
+        String a = address.toLowerCase();
+        return a.equals(ASSET_TOKEN) || a.equals(LENDING_POOL) || a.equals(MOCK_DAI) || a.equals(MULTICALL);
+    }
+
+    /**
+     * eth_call at the given block: returns the ABI-encoded result, or throws Revert.
+     */
+    String call(String from, String to, String data, long blockNumber) {
+        return execute(from, to, data, blockNumber, new ArrayList<>());
+    }
+
+    /**
+     * A transaction in the given block: mutates state and appends its logs,
+     * or throws Revert with nothing changed.
+     */
+    String execute(String from, String to, String data, long blockNumber, List<SimChain.LogEntry> logs) {
+        String input = Numeric.cleanHexPrefix(data == null ? "" : data);
+        if (input.length() < 8) {
+            throw new Revert("function selector was not recognized");
+        }
+        String selector = input.substring(0, 8);
+        String args = "0x" + input.substring(8);
+        String sender = from == null ? ZERO : from.toLowerCase();
+
+        switch (to.toLowerCase()) {
+            case ASSET_TOKEN:
+                return assetToken(sender, selector, args, logs);
+            case MOCK_DAI:
+                return mockDai(sender, selector, args, logs);
+            case LENDING_POOL:
+                return lendingPool(sender, selector, args, logs);
+            case MULTICALL:
+                return multicall(selector, args, blockNumber);
+            default:
+                return "0x";
+        }
+    }
+
+    // -------------------------- AssetToken --------------------------
+
+    private static final String NFT_MINT = selector("mint(address,string)");
+    private static final String NFT_APPROVE = selector("approve(address,uint256)");
+    private static final String NFT_SET_APPROVAL_FOR_ALL = selector("setApprovalForAll(address,bool)");
+    private static final String NFT_TRANSFER_FROM = selector("transferFrom(address,address,uint256)");
+    private static final String NFT_OWNER_OF = selector("ownerOf(uint256)");
+    private static final String NFT_GET_APPROVED = selector("getApproved(uint256)");
+    private static final String NFT_IS_APPROVED_FOR_ALL = selector("isApprovedForAll(address,address)");
+    private static final String NFT_BALANCE_OF = selector("balanceOf(address)");
+    private static final String NFT_TOKEN_URI = selector("tokenURI(uint256)");
+    private static final String NFT_NAME = selector("name()");
+    private static final String NFT_SYMBOL = selector("symbol()");
+
+    private String assetToken(String sender, String selector, String args, List<SimChain.LogEntry> logs) {
+        if (selector.equals(NFT_MINT)) {
+            List<Type> in = decode(args, new TypeReference<Address>() {}, new TypeReference<Utf8String>() {});
+            String to = address(in.get(0));
+            BigInteger tokenId = nextTokenId;
+            nextTokenId = nextTokenId.add(BigInteger.ONE);
+            tokenURIs.put(tokenId, (String) in.get(1).getValue());
+            moveNft(ZERO, to, tokenId, logs);
+            return "0x";
+        } else if (selector.equals(NFT_APPROVE)) {
+            List<Type> in = decode(args, new TypeReference<Address>() {}, new TypeReference<Uint256>() {});
+            BigInteger tokenId = uint(in.get(1));
+            String owner = requireOwner(tokenId);
+            if (!sender.equals(owner) && !isApprovedForAll(owner, sender)) {
+                throw new Revert("ERC721: approve caller is not token owner or approved for all");
+            }
+            String approved = address(in.get(0));
+            tokenApprovals.put(tokenId, approved);
+            logs.add(log(ASSET_TOKEN, List.of(APPROVAL_TOPIC, topic(owner), topic(approved), topic(tokenId)), "0x"));
+            return "0x";
+        } else if (selector.equals(NFT_SET_APPROVAL_FOR_ALL)) {
+            List<Type> in = decode(args, new TypeReference<Address>() {}, new TypeReference<Bool>() {});
+            String operator = address(in.get(0));
+            boolean approved = (Boolean) in.get(1).getValue();
+            operatorApprovals.put(sender + operator, approved);
+            logs.add(log(ASSET_TOKEN, List.of(APPROVAL_FOR_ALL_TOPIC, topic(sender), topic(operator)), encode(new Bool(approved))));
+            return "0x";
+        } else if (selector.equals(NFT_TRANSFER_FROM)) {
+            List<Type> in = decode(args, new TypeReference<Address>() {}, new TypeReference<Address>() {}, new TypeReference<Uint256>() {});
+            transferNft(sender, address(in.get(0)), address(in.get(1)), uint(in.get(2)), logs);
+            return "0x";
+        } else if (selector.equals(NFT_OWNER_OF)) {
+            return encode(new Address(requireOwner(uint(decode(args, new TypeReference<Uint256>() {}).get(0)))));
+        } else if (selector.equals(NFT_GET_APPROVED)) {
+            BigInteger tokenId = uint(decode(args, new TypeReference<Uint256>() {}).get(0));
+            requireOwner(tokenId);
+            return encode(new Address(tokenApprovals.getOrDefault(tokenId, ZERO)));
+        } else if (selector.equals(NFT_IS_APPROVED_FOR_ALL)) {
+            List<Type> in = decode(args, new TypeReference<Address>() {}, new TypeReference<Address>() {});
+            return encode(new Bool(isApprovedForAll(address(in.get(0)), address(in.get(1)))));
+        } else if (selector.equals(NFT_BALANCE_OF)) {
+            String owner = address(decode(args, new TypeReference<Address>() {}).get(0));
+            return encode(new Uint256(nftBalances.getOrDefault(owner, BigInteger.ZERO)));
+        } else if (selector.equals(NFT_TOKEN_URI)) {
+            BigInteger tokenId = uint(decode(args, new TypeReference<Uint256>() {}).get(0));
+            if (!owners.containsKey(tokenId)) {
+                throw new Revert("Query for nonexistent token");
+            }
+            return encode(new Utf8String(tokenURIs.get(tokenId)));
+        } else if (selector.equals(NFT_NAME)) {
+            return encode(new Utf8String("AssetToken"));
+        } else if (selector.equals(NFT_SYMBOL)) {
+            return encode(new Utf8String("AST"));
+        }
+        throw new Revert("function selector was not recognized");
+    }
+
+    private void transferNft(String spender, String from, String to, BigInteger tokenId, List<SimChain.LogEntry> logs) {
+        String owner = requireOwner(tokenId);
+        if (!spender.equals(owner) && !isApprovedForAll(owner, spender) && !spender.equals(tokenApprovals.get(tokenId))) {
+            throw new Revert("ERC721: caller is not token owner or approved");
+        }
+        if (!owner.equals(from)) {
+            throw new Revert("ERC721: transfer from incorrect owner");
+        }
+        moveNft(from, to, tokenId, logs);
+    }
+
+    private void moveNft(String from, String to, BigInteger tokenId, List<SimChain.LogEntry> logs) {
+        tokenApprovals.remove(tokenId);
+        if (!from.equals(ZERO)) {
+            nftBalances.merge(from, BigInteger.ONE.negate(), BigInteger::add);
+        }
+        nftBalances.merge(to, BigInteger.ONE, BigInteger::add);
+        owners.put(tokenId, to);
+        logs.add(log(ASSET_TOKEN, List.of(TRANSFER_TOPIC, topic(from), topic(to), topic(tokenId)), "0x"));
+    }
+
+    private String requireOwner(BigInteger tokenId) {
+        String owner = owners.get(tokenId);
+        if (owner == null) {
+            throw new Revert("ERC721: invalid token ID");
+        }
+        return owner;
+    }
+
+    private boolean isApprovedForAll(String owner, String operator) {
+        return operatorApprovals.getOrDefault(owner + operator, false);
+    }
+
+    // -------------------------- MockDAI --------------------------
+
+    private static final String DAI_MINT = selector("mint(address,uint256)");
+    private static final String DAI_APPROVE = selector("approve(address,uint256)");
+    private static final String DAI_TRANSFER = selector("transfer(address,uint256)");
+    private static final String DAI_TRANSFER_FROM = selector("transferFrom(address,address,uint256)");
+    private static final String DAI_BALANCE_OF = selector("balanceOf(address)");
+    private static final String DAI_ALLOWANCE = selector("allowance(address,address)");
+    private static final String DAI_TOTAL_SUPPLY = selector("totalSupply()");
+    private static final String DAI_DECIMALS = selector("decimals()");
+    private static final String DAI_NAME = selector("name()");
+    private static final String DAI_SYMBOL = selector("symbol()");
+
+    private String mockDai(String sender, String selector, String args, List<SimChain.LogEntry> logs) {
+        if (selector.equals(DAI_MINT)) {
+            List<Type> in = decode(args, new TypeReference<Address>() {}, new TypeReference<Uint256>() {});
+            String to = address(in.get(0));
+            BigInteger amount = uint(in.get(1));
+            mint(to, amount);
+            logs.add(log(MOCK_DAI, List.of(TRANSFER_TOPIC, topic(ZERO), topic(to)), encode(new Uint256(amount))));
+            return "0x";
+        } else if (selector.equals(DAI_APPROVE)) {
+            List<Type> in = decode(args, new TypeReference<Address>() {}, new TypeReference<Uint256>() {});
+            String spender = address(in.get(0));
+            BigInteger amount = uint(in.get(1));
+            allowances.put(sender + spender, amount);
+            logs.add(log(MOCK_DAI, List.of(APPROVAL_TOPIC, topic(sender), topic(spender)), encode(new Uint256(amount))));
+            return encode(new Bool(true));
+        } else if (selector.equals(DAI_TRANSFER)) {
+            List<Type> in = decode(args, new TypeReference<Address>() {}, new TypeReference<Uint256>() {});
+            transferDai(sender, address(in.get(0)), uint(in.get(1)), logs);
+            return encode(new Bool(true));
+        } else if (selector.equals(DAI_TRANSFER_FROM)) {
+            List<Type> in = decode(args, new TypeReference<Address>() {}, new TypeReference<Address>() {}, new TypeReference<Uint256>() {});
+            transferDaiFrom(sender, address(in.get(0)), address(in.get(1)), uint(in.get(2)), logs);
+            return encode(new Bool(true));
+        } else if (selector.equals(DAI_BALANCE_OF)) {
+            return encode(new Uint256(balanceOf(address(decode(args, new TypeReference<Address>() {}).get(0)))));
+        } else if (selector.equals(DAI_ALLOWANCE)) {
+            List<Type> in = decode(args, new TypeReference<Address>() {}, new TypeReference<Address>() {});
+            return encode(new Uint256(allowances.getOrDefault(address(in.get(0)) + address(in.get(1)), BigInteger.ZERO)));
+        } else if (selector.equals(DAI_TOTAL_SUPPLY)) {
+            return encode(new Uint256(totalSupply));
+        } else if (selector.equals(DAI_DECIMALS)) {
+            return encode(new Uint8(18));
+        } else if (selector.equals(DAI_NAME)) {
+            return encode(new Utf8String("MockDAI"));
+        } else if (selector.equals(DAI_SYMBOL)) {
+            return encode(new Utf8String("mDAI"));
+        }
+        throw new Revert("function selector was not recognized");
+    }
+
+    private void mint(String to, BigInteger amount) {
+        balances.merge(to, amount, BigInteger::add);
+        totalSupply = totalSupply.add(amount);
+    }
+
+    private BigInteger balanceOf(String account) {
+        return balances.getOrDefault(account, BigInteger.ZERO);
+    }
+
+    private void transferDai(String from, String to, BigInteger amount, List<SimChain.LogEntry> logs) {
+        if (balanceOf(from).compareTo(amount) < 0) {
+            throw new Revert("ERC20: transfer amount exceeds balance");
+        }
+        balances.put(from, balanceOf(from).subtract(amount));
+        balances.merge(to, amount, BigInteger::add);
+        logs.add(log(MOCK_DAI, List.of(TRANSFER_TOPIC, topic(from), topic(to)), encode(new Uint256(amount))));
+    }
+
+    private void transferDaiFrom(String spender, String from, String to, BigInteger amount, List<SimChain.LogEntry> logs) {
+        String key = from + spender;
+        BigInteger allowance = allowances.getOrDefault(key, BigInteger.ZERO);
+        if (allowance.compareTo(amount) < 0) {
+            throw new Revert("ERC20: insufficient allowance");
+        }
+        transferDai(from, to, amount, logs);
+        // OpenZeppelin 4.9 treats the maximum allowance as infinite
+        if (!allowance.equals(MAX_UINT256)) {
+            allowances.put(key, allowance.subtract(amount));
+        }
+    }
+
+    // -------------------------- LendingPool --------------------------
+
+    private static final String POOL_BORROW = selector("borrow(uint256,uint256)");
+    private static final String POOL_REPAY = selector("repay(uint256)");
+    private static final String POOL_LIQUIDATE = selector("liquidate(uint256)");
+    private static final String POOL_UPDATE_INTEREST_RATE = selector("updateInterestRate(uint256)");
+    private static final String POOL_LOANS = selector("loans(uint256)");
+    private static final String POOL_TOKEN_TO_LOAN_ID = selector("tokenToLoanId(uint256)");
+    private static final String POOL_LOAN_ID_COUNTER = selector("loanIdCounter()");
+    private static final String POOL_INTEREST_RATE = selector("interestRate()");
+    private static final String POOL_STABLECOIN = selector("stablecoin()");
+    private static final String POOL_ASSET_TOKEN = selector("assetToken()");
+
+    private String lendingPool(String sender, String selector, String args, List<SimChain.LogEntry> logs) {
+        if (selector.equals(POOL_BORROW)) {
+            List<Type> in = decode(args, new TypeReference<Uint256>() {}, new TypeReference<Uint256>() {});
+            borrow(sender, uint(in.get(0)), uint(in.get(1)), logs);
+            return "0x";
+        } else if (selector.equals(POOL_REPAY)) {
+            repay(sender, uint(decode(args, new TypeReference<Uint256>() {}).get(0)), logs);
+            return "0x";
+        } else if (selector.equals(POOL_LIQUIDATE)) {
+            liquidate(sender, uint(decode(args, new TypeReference<Uint256>() {}).get(0)), logs);
+            return "0x";
+        } else if (selector.equals(POOL_UPDATE_INTEREST_RATE)) {
+            interestRate = uint(decode(args, new TypeReference<Uint256>() {}).get(0));
+            return "0x";
+        } else if (selector.equals(POOL_LOANS)) {
+            BigInteger loanId = uint(decode(args, new TypeReference<Uint256>() {}).get(0));
+            BigInteger[] loan = loans.getOrDefault(loanId, new BigInteger[]{
+                    BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO});
+            return encode(new Uint256(loan[0]), new Uint256(loan[1]), new Uint256(loan[2]), new Uint256(loan[3]),
+                    new Uint256(loan[4]), new Bool(loanActive.getOrDefault(loanId, false)));
+        } else if (selector.equals(POOL_TOKEN_TO_LOAN_ID)) {
+            BigInteger tokenId = uint(decode(args, new TypeReference<Uint256>() {}).get(0));
+            return encode(new Uint256(tokenToLoanId.getOrDefault(tokenId, BigInteger.ZERO)));
+        } else if (selector.equals(POOL_LOAN_ID_COUNTER)) {
+            return encode(new Uint256(loanIdCounter));
+        } else if (selector.equals(POOL_INTEREST_RATE)) {
+            return encode(new Uint256(interestRate));
+        } else if (selector.equals(POOL_STABLECOIN)) {
+            return encode(new Address(MOCK_DAI));
+        } else if (selector.equals(POOL_ASSET_TOKEN)) {
+            return encode(new Address(ASSET_TOKEN));
+        }
+        throw new Revert("function selector was not recognized");
+    }
+
+    private void borrow(String sender, BigInteger tokenId, BigInteger amount, List<SimChain.LogEntry> logs) {
+        String owner = requireOwner(tokenId);
+        if (!LENDING_POOL.equals(tokenApprovals.get(tokenId)) && !isApprovedForAll(sender, LENDING_POOL)) {
+            throw new Revert("LendingPool: Not approved to transfer NFT");
+        }
+        if (!owner.equals(sender)) {
+            throw new Revert("LendingPool: Caller is not NFT owner");
+        }
+        if (tokenToLoanId.getOrDefault(tokenId, BigInteger.ZERO).signum() != 0) {
+            throw new Revert("LendingPool: NFT already collateralized");
+        }
+        if (amount.signum() <= 0 || amount.compareTo(MAX_LOAN_AMOUNT) > 0) {
+            throw new Revert("LendingPool: Invalid borrow amount");
+        }
+        if (balanceOf(LENDING_POOL).compareTo(amount) < 0) {
+            throw new Revert("LendingPool: Insufficient pool liquidity");
+        }
+
+        loanIdCounter = loanIdCounter.add(BigInteger.ONE);
+        BigInteger loanId = loanIdCounter;
+        BigInteger interest = amount.multiply(interestRate).divide(BigInteger.valueOf(10_000));
+        loans.put(loanId, new BigInteger[]{loanId, tokenId, amount, BigInteger.valueOf(System.currentTimeMillis() / 1000), interest});
+        loanActive.put(loanId, true);
+        tokenToLoanId.put(tokenId, loanId);
+
+        moveNft(sender, LENDING_POOL, tokenId, logs);
+        transferDai(LENDING_POOL, sender, amount, logs);
+        logs.add(log(LENDING_POOL, List.of(LOAN_CREATED_TOPIC), encode(new Uint256(loanId), new Uint256(tokenId), new Uint256(amount))));
+    }
+
+    private void repay(String sender, BigInteger loanId, List<SimChain.LogEntry> logs) {
+        if (!loanActive.getOrDefault(loanId, false)) {
+            throw new Revert("Loan not active");
+        }
+        BigInteger[] loan = loans.get(loanId);
+        BigInteger totalDue = loan[2].add(loan[4]);
+        BigInteger allowance = allowances.getOrDefault(sender + LENDING_POOL, BigInteger.ZERO);
+        if (allowance.compareTo(totalDue) < 0 || balanceOf(sender).compareTo(totalDue) < 0) {
+            throw new Revert("Repay transfer failed");
+        }
+
+        transferDaiFrom(LENDING_POOL, sender, LENDING_POOL, totalDue, logs);
+        moveNft(LENDING_POOL, sender, loan[1], logs);
+        loanActive.put(loanId, false);
+        tokenToLoanId.put(loan[1], BigInteger.ZERO);
+        logs.add(log(LENDING_POOL, List.of(LOAN_REPAID_TOPIC), encode(new Uint256(loanId), new Uint256(totalDue))));
+    }
+
+    private void liquidate(String sender, BigInteger loanId, List<SimChain.LogEntry> logs) {
+        if (!loanActive.getOrDefault(loanId, false)) {
+            throw new Revert("Loan not active");
+        }
+        BigInteger tokenId = loans.get(loanId)[1];
+        moveNft(LENDING_POOL, sender, tokenId, logs);
+        loanActive.put(loanId, false);
+        tokenToLoanId.put(tokenId, BigInteger.ZERO);
+        logs.add(log(LENDING_POOL, List.of(LOAN_LIQUIDATED_TOPIC), encode(new Uint256(loanId))));
+    }
+
+    // -------------------------- LendingMulticall --------------------------
+
+    private static final String MULTICALL_AGGREGATE = selector("aggregate(address[],bytes[])");
+
+    @SuppressWarnings("unchecked")
+    private String multicall(String selector, String args, long blockNumber) {
+        if (!selector.equals(MULTICALL_AGGREGATE)) {
+            throw new Revert("function selector was not recognized");
+        }
+        List<Type> in = decode(args, new TypeReference<DynamicArray<Address>>() {},
+                new TypeReference<DynamicArray<DynamicBytes>>() {});
+        List<Address> targets = ((DynamicArray<Address>) in.get(0)).getValue();
+        List<DynamicBytes> callData = ((DynamicArray<DynamicBytes>) in.get(1)).getValue();
+        if (targets.size() != callData.size()) {
+            throw new Revert("LendingMulticall: length mismatch");
+        }
+        List<Bool> success = new ArrayList<>(targets.size());
+        List<DynamicBytes> returnData = new ArrayList<>(targets.size());
+        for (int i = 0; i < targets.size(); i++) {
+            String data = Numeric.toHexString(callData.get(i).getValue());
+            String result;
+            try {
+                // a staticcall: state is only read, and logs go nowhere
+                result = execute(MULTICALL, targets.get(i).getValue(), data, blockNumber, new ArrayList<>());
+                success.add(new Bool(true));
+            } catch (Revert e) {
+                result = encodeRevert(e.getMessage());
+                success.add(new Bool(false));
+            }
+            returnData.add(new DynamicBytes(Numeric.hexStringToByteArray(result)));
+        }
+        return encode(new Uint256(blockNumber), new DynamicArray<>(Bool.class, success),
+                new DynamicArray<>(DynamicBytes.class, returnData));
+    }
+
+    // -------------------------- ABI helpers --------------------------
+
+    private static String selector(String signature) {
+        return Hash.sha3String(signature).substring(2, 10);
+    }
+
+    private static List<Type> decode(String args, TypeReference<?>... types) {
+        List<Type> values = FunctionReturnDecoder.decode(args, Utils.convert(Arrays.asList(types)));
+        if (values.size() != types.length) {
+            throw new Revert("invalid calldata");
+        }
+        return values;
+    }
+
+    private static String encode(Type... values) {
+        return "0x" + FunctionEncoder.encodeConstructor(Arrays.asList(values));
+    }
+
+    private static String address(Type value) {
+        return ((Address) value).getValue().toLowerCase();
+    }
+
+    private static BigInteger uint(Type value) {
+        return (BigInteger) value.getValue();
+    }
+
+    private static String topic(String address) {
+        return Numeric.toHexStringWithPrefixZeroPadded(Numeric.toBigInt(address), 64);
+    }
+
+    private static String topic(BigInteger value) {
+        return Numeric.toHexStringWithPrefixZeroPadded(value, 64);
+    }
+
+    private static SimChain.LogEntry log(String address, List<String> topics, String data) {
+        return new SimChain.LogEntry(address, topics, data);
+    }
+
+    static String encodeRevert(String reason) {
+        return "0x08c379a0" + FunctionEncoder.encodeConstructor(List.of(new Utf8String(reason)));
+    }
+
+    static class Revert extends RuntimeException {
+        Revert(String reason) {
+            super(reason);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.defi.chainsim;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WebSocket endpoint with eth_subscribe for newHeads and logs (address
+ * filter only, like the backend uses it). Any other method is answered as
+ * over HTTP, without the latency. Notifications go out as each block is
+ * mined: the head first, then its logs in order. chainsim_dropSubscriptions
+ * over HTTP closes every socket, to exercise client reconnects.
+ */
+class SimSubscriptions extends WebSocketServer {
+
+    private static final Logger log = LoggerFactory.getLogger(SimSubscriptions.class);
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private final ChainSimulator simulator;
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<WebSocket, Map<String, Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    private record Subscription(boolean heads, Set<String> addresses) {
+    }
+
+    SimSubscriptions(int port, ChainSimulator simulator) {
+        super(new InetSocketAddress(port));
+        this.simulator = simulator;
+        setReuseAddr(true);
+    }
+
+    @Override
+    public void onStart() {
+        log.info("WebSocket subscriptions on port {}", getPort());
+    }
+
+    @Override
+    public void onOpen(WebSocket socket, ClientHandshake handshake) {
+        subscriptions.put(socket, new ConcurrentHashMap<>());
+    }
+
+    @Override
+    public void onClose(WebSocket socket, int code, String reason, boolean remote) {
+        subscriptions.remove(socket);
+    }
+
+    @Override
+    public void onError(WebSocket socket, Exception e) {
+        log.warn("WebSocket error", e);
+    }
+
+    @Override
+    public void onMessage(WebSocket socket, String message) {
+        try {
+            JsonNode call = JSON.readTree(message);
+            String method = call.path("method").asText();
+            JsonNode response;
+            if ("eth_subscribe".equals(method)) {
+                response = subscribe(socket, call);
+            } else if ("eth_unsubscribe".equals(method)) {
+                Map<String, Subscription> own = subscriptions.get(socket);
+                boolean removed = own != null && own.remove(call.path("params").path(0).asText()) != null;
+                response = result(call, NODES.booleanNode(removed));
+            } else {
+                response = simulator.dispatch(call);
+            }
+            socket.send(JSON.writeValueAsString(response));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Bad WebSocket message", e);
+        }
+    }
+
+    void dropAll() {
+        for (WebSocket socket : getConnections()) {
+            socket.close();
+        }
+    }
+
+    // runs with the chain locked, so blocks go out in order
+    void onMined(SimChain.Block block) {
+        for (Map.Entry<WebSocket, Map<String, Subscription>> entry : subscriptions.entrySet()) {
+            for (Map.Entry<String, Subscription> subscription : entry.getValue().entrySet()) {
+                if (subscription.getValue().heads()) {
+                    notify(entry.getKey(), subscription.getKey(), ChainSimulator.header(block));
+                }
+            }
+        }
+        for (SimChain.Tx tx : block.txs) {
+            for (SimChain.LogEntry logEntry : tx.logs) {
+                for (Map.Entry<WebSocket, Map<String, Subscription>> entry : subscriptions.entrySet()) {
+                    for (Map.Entry<String, Subscription> subscription : entry.getValue().entrySet()) {
+                        Subscription filter = subscription.getValue();
+                        if (!filter.heads() && (filter.addresses().isEmpty() || filter.addresses().contains(logEntry.address))) {
+                            notify(entry.getKey(), subscription.getKey(), ChainSimulator.log(logEntry));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private JsonNode subscribe(WebSocket socket, JsonNode call) {
+        JsonNode params = call.path("params");
+        String kind = params.path(0).asText();
+        Set<String> addresses = new HashSet<>();
+        if ("logs".equals(kind)) {
+            JsonNode address = params.path(1).path("address");
+            if (address.isArray()) {
+                address.forEach(a -> addresses.add(a.asText().toLowerCase()));
+            } else if (address.isTextual()) {
+                addresses.add(address.asText().toLowerCase());
+            }
+        } else if (!"newHeads".equals(kind)) {
+            ObjectNode response = result(call, null);
+            ObjectNode error = response.putObject("error");
+            error.put("code", -32602);
+            error.put("message", "unsupported subscription " + kind);
+            return response;
+        }
+        String id = "0x" + Long.toHexString(ids.incrementAndGet());
+        subscriptions.computeIfAbsent(socket, s -> new ConcurrentHashMap<>())
+                .put(id, new Subscription("newHeads".equals(kind), addresses));
+        return result(call, NODES.textNode(id));
+    }
+
+    private static ObjectNode result(JsonNode call, JsonNode result) {
+        ObjectNode response = NODES.objectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", call.get("id"));
+        if (result != null) {
+            response.set("result", result);
+        }
+        return response;
+    }
+
+    private static void notify(WebSocket socket, String subscription, JsonNode result) {
+        ObjectNode message = NODES.objectNode();
+        message.put("jsonrpc", "2.0");
+        message.put("method", "eth_subscription");
+        ObjectNode params = message.putObject("params");
+        params.put("subscription", subscription);
+        params.set("result", result);
+        try {
+            socket.send(JSON.writeValueAsString(message));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.debug("Dropping notification to a closed socket", e);
+        }
+    }
+}
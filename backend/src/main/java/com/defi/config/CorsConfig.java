@@ -15,7 +15,9 @@ public class CorsConfig {
                 registry.addMapping("/**")
                         .allowedOrigins("http://localhost:5173", "http://127.0.0.1:5173")
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
-                        .allowedHeaders("*");
+                        .allowedHeaders("*")
+                        .exposedHeaders(RpcUsageAdvice.CALLS, RpcUsageAdvice.BYTES_SENT,
+                                RpcUsageAdvice.BYTES_RECEIVED, RpcUsageAdvice.TIME);
             }
         };
     }
@@ -0,0 +1,54 @@
+package com.defi.config;
+
+import com.defi.service.ContractReadCache;
+import com.defi.service.LoanCache;
+import com.defi.service.web3service;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Publishes the hit and miss counts behind /api/cache/stats as
+ * web3.cache.hits and web3.cache.misses, tagged by cache and function.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder cacheMetrics(ContractReadCache contractCache, web3service web3Service) {
+        return registry -> {
+            for (String function : ContractReadCache.functions()) {
+                bind(registry, "contract", function, contractCache::getStats);
+            }
+            LoanCache loanCache = web3Service.getLoanCache();
+            for (String function : List.of(LoanCache.LOANS, LoanCache.TOKEN_TO_LOAN_ID)) {
+                bind(registry, "loans", function, loanCache::getStats);
+            }
+            Gauge.builder("web3.cache.size", contractCache, ContractReadCache::size)
+                    .tag("cache", "contract")
+                    .register(registry);
+        };
+    }
+
+    private static void bind(MeterRegistry registry, String cache, String function,
+                             Supplier<Map<String, Map<String, Object>>> stats) {
+        for (String counter : List.of("hits", "misses")) {
+            FunctionCounter.builder("web3.cache." + counter, stats, s -> count(s.get(), function, counter))
+                    .tag("cache", cache)
+                    .tag("function", function)
+                    .register(registry);
+        }
+    }
+
+    private static double count(Map<String, Map<String, Object>> stats, String function, String counter) {
+        Map<String, Object> row = stats.get(function);
+        return row != null && row.get(counter) instanceof Number n ? n.doubleValue() : 0;
+    }
+}
@@ -0,0 +1,22 @@
+package com.defi.config;
+
+import com.defi.service.PriceSource;
+import com.defi.service.SimulatedPriceSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Falls back to SimulatedPriceSource when no other PriceSource bean is
+ * defined. A bean method rather than a scanned @Service, so the condition
+ * sees every scanned PriceSource before it is evaluated.
+ */
+@Configuration
+public class PriceSourceConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(PriceSource.class)
+    public PriceSource simulatedPriceSource() {
+        return new SimulatedPriceSource();
+    }
+}
@@ -0,0 +1,83 @@
+package com.defi.config;
+
+import com.defi.service.RpcUsage;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Gives every /api request an RpcUsage and logs what it cost once the
+ * response is complete, including after an async handler has finished.
+ * Requests over the configured call or byte budget are logged as warnings,
+ * which is how N+1 chain access shows up before it reaches production.
+ */
+@Component
+public class RpcAccountingFilter extends OncePerRequestFilter {
+
+    public static final String ATTRIBUTE = RpcAccountingFilter.class.getName() + ".usage";
+
+    // one line per request on its own logger, so it can be turned down without losing the warnings
+    private static final Logger usageLog = LoggerFactory.getLogger("rpc.usage");
+    private static final Logger log = LoggerFactory.getLogger(RpcAccountingFilter.class);
+
+    @Value("${web3.rpc.budget.calls:25}")
+    private long budgetCalls;
+
+    @Value("${web3.rpc.budget.bytes:1048576}")
+    private long budgetBytes;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // the async dispatch is where a CompletableFuture handler's response is written
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RpcUsage usage = (RpcUsage) request.getAttribute(ATTRIBUTE);
+        if (usage == null) {
+            usage = new RpcUsage();
+            request.setAttribute(ATTRIBUTE, usage);
+        }
+
+        RpcUsage previous = RpcUsage.attach(usage);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RpcUsage.attach(previous);
+        }
+
+        if (!request.isAsyncStarted()) {
+            report(request, response, usage);
+        }
+    }
+
+    private void report(HttpServletRequest request, HttpServletResponse response, RpcUsage usage) {
+        long bytes = usage.getBytesSent() + usage.getBytesReceived();
+        boolean overBudget = (budgetCalls > 0 && usage.getCalls() > budgetCalls) || (budgetBytes > 0 && bytes > budgetBytes);
+        if (overBudget) {
+            log.warn("RPC budget exceeded: method={} uri={} status={} rpcCalls={} rpcBytesSent={} rpcBytesReceived={} rpcMs={} elapsedMs={} budgetCalls={} budgetBytes={}",
+                    request.getMethod(), request.getRequestURI(), response.getStatus(), usage.getCalls(),
+                    usage.getBytesSent(), usage.getBytesReceived(), usage.getRpcMillis(), usage.getElapsedMillis(),
+                    budgetCalls, budgetBytes);
+        } else if (usageLog.isInfoEnabled()) {
+            usageLog.info("method={} uri={} status={} rpcCalls={} rpcBytesSent={} rpcBytesReceived={} rpcMs={} elapsedMs={}",
+                    request.getMethod(), request.getRequestURI(), response.getStatus(), usage.getCalls(),
+                    usage.getBytesSent(), usage.getBytesReceived(), usage.getRpcMillis(), usage.getElapsedMillis());
+        }
+    }
+}
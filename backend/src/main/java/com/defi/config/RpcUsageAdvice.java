@@ -0,0 +1,45 @@
+package com.defi.config;
+
+import com.defi.service.RpcUsage;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds the request's RPC usage so far to the response headers, just before
+ * the body is written.
+ */
+@ControllerAdvice
+public class RpcUsageAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String CALLS = "X-RPC-Calls";
+    public static final String BYTES_SENT = "X-RPC-Bytes-Sent";
+    public static final String BYTES_RECEIVED = "X-RPC-Bytes-Received";
+    public static final String TIME = "X-RPC-Time-Ms";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                  Class<? extends HttpMessageConverter<?>> converterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && servletRequest.getServletRequest().getAttribute(RpcAccountingFilter.ATTRIBUTE) instanceof RpcUsage usage) {
+            HttpHeaders headers = response.getHeaders();
+            headers.set(CALLS, Long.toString(usage.getCalls()));
+            headers.set(BYTES_SENT, Long.toString(usage.getBytesSent()));
+            headers.set(BYTES_RECEIVED, Long.toString(usage.getBytesReceived()));
+            headers.set(TIME, Long.toString(usage.getRpcMillis()));
+        }
+        return body;
+    }
+}
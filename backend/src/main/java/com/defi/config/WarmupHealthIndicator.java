@@ -0,0 +1,25 @@
+package com.defi.config;
+
+import com.defi.service.WarmupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * "warmup" health: OUT_OF_SERVICE until WarmupService has finished. Part of
+ * the readiness group, so /actuator/health/readiness only reports UP once
+ * the instance can serve requests without first-call latency.
+ */
+@Component
+public class WarmupHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private WarmupService warmup;
+
+    @Override
+    public Health health() {
+        Health.Builder health = warmup.isDone() ? Health.up() : Health.outOfService();
+        return health.withDetails(warmup.getDetails()).build();
+    }
+}
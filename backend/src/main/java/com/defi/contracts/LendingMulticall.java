@@ -0,0 +1,94 @@
+package com.defi.contracts;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.DynamicBytes;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.RemoteFunctionCall;
+import org.web3j.tuples.generated.Tuple3;
+import org.web3j.tx.Contract;
+import org.web3j.tx.TransactionManager;
+import org.web3j.tx.gas.ContractGasProvider;
+
+/**
+ * <p>Auto generated code.
+ * <p><strong>Do not modify!</strong>
+ * <p>Please use the <a href="https://docs.web3j.io/command_line.html">web3j command line tools</a>,
+ * or the org.web3j.codegen.SolidityFunctionWrapperGenerator in the
+ * <a href="https://github.com/web3j/web3j/tree/master/codegen">codegen module</a> to update.
+ *
+ * <p>Generated with web3j version 4.10.0.
+ */
+@SuppressWarnings("rawtypes")
+public class LendingMulticall extends Contract {
+    public static final String BINARY = "Bin file was not provided";
+
+    public static final String FUNC_AGGREGATE = "aggregate";
+
+    @Deprecated
+    protected LendingMulticall(String contractAddress, Web3j web3j, Credentials credentials, BigInteger gasPrice, BigInteger gasLimit) {
+        super(BINARY, contractAddress, web3j, credentials, gasPrice, gasLimit);
+    }
+
+    protected LendingMulticall(String contractAddress, Web3j web3j, Credentials credentials, ContractGasProvider contractGasProvider) {
+        super(BINARY, contractAddress, web3j, credentials, contractGasProvider);
+    }
+
+    @Deprecated
+    protected LendingMulticall(String contractAddress, Web3j web3j, TransactionManager transactionManager, BigInteger gasPrice, BigInteger gasLimit) {
+        super(BINARY, contractAddress, web3j, transactionManager, gasPrice, gasLimit);
+    }
+
+    protected LendingMulticall(String contractAddress, Web3j web3j, TransactionManager transactionManager, ContractGasProvider contractGasProvider) {
+        super(BINARY, contractAddress, web3j, transactionManager, contractGasProvider);
+    }
+
+    public RemoteFunctionCall<Tuple3<BigInteger, List<Boolean>, List<byte[]>>> aggregate(List<String> targets, List<byte[]> callData) {
+        final Function function = new Function(FUNC_AGGREGATE,
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.Address>(
+                        org.web3j.abi.datatypes.Address.class,
+                        org.web3j.abi.Utils.typeMap(targets, org.web3j.abi.datatypes.Address.class)),
+                new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.DynamicBytes>(
+                        org.web3j.abi.datatypes.DynamicBytes.class,
+                        org.web3j.abi.Utils.typeMap(callData, org.web3j.abi.datatypes.DynamicBytes.class))),
+                Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>() {}, new TypeReference<DynamicArray<Bool>>() {}, new TypeReference<DynamicArray<DynamicBytes>>() {}));
+        return new RemoteFunctionCall<Tuple3<BigInteger, List<Boolean>, List<byte[]>>>(function,
+                new Callable<Tuple3<BigInteger, List<Boolean>, List<byte[]>>>() {
+                    @Override
+                    public Tuple3<BigInteger, List<Boolean>, List<byte[]>> call() throws Exception {
+                        List<Type> results = executeCallMultipleValueReturn(function);
+                        return new Tuple3<BigInteger, List<Boolean>, List<byte[]>>(
+                                (BigInteger) results.get(0).getValue(),
+                                convertToNative((List<Bool>) results.get(1).getValue()),
+                                convertToNative((List<DynamicBytes>) results.get(2).getValue()));
+                    }
+                });
+    }
+
+    @Deprecated
+    public static LendingMulticall load(String contractAddress, Web3j web3j, Credentials credentials, BigInteger gasPrice, BigInteger gasLimit) {
+        return new LendingMulticall(contractAddress, web3j, credentials, gasPrice, gasLimit);
+    }
+
+    @Deprecated
+    public static LendingMulticall load(String contractAddress, Web3j web3j, TransactionManager transactionManager, BigInteger gasPrice, BigInteger gasLimit) {
+        return new LendingMulticall(contractAddress, web3j, transactionManager, gasPrice, gasLimit);
+    }
+
+    public static LendingMulticall load(String contractAddress, Web3j web3j, Credentials credentials, ContractGasProvider contractGasProvider) {
+        return new LendingMulticall(contractAddress, web3j, credentials, contractGasProvider);
+    }
+
+    public static LendingMulticall load(String contractAddress, Web3j web3j, TransactionManager transactionManager, ContractGasProvider contractGasProvider) {
+        return new LendingMulticall(contractAddress, web3j, transactionManager, contractGasProvider);
+    }
+}
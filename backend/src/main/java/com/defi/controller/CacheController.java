@@ -0,0 +1,28 @@
+package com.defi.controller;
+
+import com.defi.service.ContractReadCache;
+import com.defi.service.web3service;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+    @Autowired
+    private ContractReadCache contractCache;
+
+    @Autowired
+    private web3service web3Service;
+
+    // hits, misses, evictions and hit rate per cached contract function
+    @GetMapping("/stats")
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>(contractCache.getStats());
+        stats.putAll(web3Service.getLoanCache().getStats());
+        return stats;
+    }
+}
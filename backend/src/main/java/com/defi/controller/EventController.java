@@ -0,0 +1,27 @@
+package com.defi.controller;
+
+import com.defi.service.EventBroadcaster;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigInteger;
+
+@RestController
+@RequestMapping("/api/events")
+public class EventController {
+
+    @Autowired
+    private EventBroadcaster eventBroadcaster;
+
+    @GetMapping(path = "/wallet/{wallet}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter walletEvents(@PathVariable String wallet) {
+        return eventBroadcaster.subscribeWallet(wallet);
+    }
+
+    @GetMapping(path = "/loan/{loanId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter loanEvents(@PathVariable BigInteger loanId) {
+        return eventBroadcaster.subscribeLoan(loanId);
+    }
+}
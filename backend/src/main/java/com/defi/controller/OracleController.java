@@ -1,18 +1,38 @@
 package com.defi.controller;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.defi.dto.PriceQuote;
+import com.defi.dto.ValuationsRequest;
+import com.defi.service.OracleService;
+import com.defi.service.ValuationSigningService;
 import com.defi.util.CryptoUtil;
 
+import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api")
 public class OracleController {
 
+    @Autowired
+    private ValuationSigningService valuationSigning;
+
+    @Autowired
+    private OracleService oracleService;
+
+    @Value("${oracle.valuations.max-batch:10000}")
+    private int maxBatch;
+
     @GetMapping("/valuation/{tokenId}")
     public Map<String, String> getValuation(@PathVariable String tokenId) {
-        String valuationWei = "2000000000000000000000"; // 2000 DAI
+        String valuationWei = ValuationSigningService.VALUATION_WEI.toString(); // 2000 DAI
 
         String signature = CryptoUtil.signMessage(tokenId, valuationWei);
         String oracleAddress = CryptoUtil.getOracleAddress();
@@ -24,4 +44,32 @@ public class OracleController {
 
         return response;
     }
-}
\ No newline at end of file
+
+    // signs many tokens at once; results are streamed in the order they finish
+    @PostMapping("/valuations")
+    public ResponseEntity<StreamingResponseBody> getValuations(@RequestBody ValuationsRequest request) {
+        List<BigInteger> tokenIds = request.getTokenIds();
+        if (tokenIds == null || tokenIds.isEmpty() || tokenIds.size() > maxBatch) {
+            return ResponseEntity.badRequest().build();
+        }
+        // checked before streaming starts: once it has, a bad id can only break the response midway
+        for (BigInteger tokenId : tokenIds) {
+            if (tokenId == null || tokenId.signum() < 0) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> valuationSigning.streamValuations(tokenIds, out));
+    }
+
+    // spot, TWAP and volatility over the last `window` ticks (default oracle.prices.twap-window)
+    @GetMapping("/price/{asset}")
+    public ResponseEntity<PriceQuote> getPrice(@PathVariable String asset, @RequestParam(required = false) Integer window) {
+        if (!oracleService.isTracked(asset)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(window == null
+                ? oracleService.getAssetValuation(asset) : oracleService.getAssetValuation(asset, window));
+    }
+}
@@ -0,0 +1,42 @@
+package com.defi.controller;
+
+import com.defi.service.ChainEventStream;
+import com.defi.service.ContractReadCache;
+import com.defi.service.LoanBook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/pool")
+public class PoolController {
+
+    @Autowired
+    private LoanBook loanBook;
+
+    @Autowired
+    private ContractReadCache contractCache;
+
+    @Autowired
+    private ChainEventStream chainEvents;
+
+    // loan totals from the loan book; utilization is outstanding principal over principal plus liquidity
+    @GetMapping("/stats")
+    public CompletableFuture<Map<String, Object>> getStats() {
+        Map<String, Object> stats = loanBook.getStats();
+        stats.put("asOfBlock", chainEvents.getProcessedBlock());
+        return contractCache.poolLiquidity().thenApply(liquidity -> {
+            BigInteger outstanding = (BigInteger) stats.get("outstandingPrincipal");
+            BigInteger total = outstanding.add(liquidity);
+            stats.put("poolLiquidity", liquidity);
+            stats.put("utilization", total.signum() == 0 ? 0.0
+                    : new BigDecimal(outstanding).divide(new BigDecimal(total), MathContext.DECIMAL64).doubleValue());
+            return stats;
+        });
+    }
+}
@@ -0,0 +1,46 @@
+package com.defi.dto;
+
+public class PriceQuote {
+    private final String asset;
+    private final long timestamp;
+    private final double spot;
+    private final double twap;
+    private final double volatility;
+    private final int window;
+
+    public PriceQuote(String asset, long timestamp, double spot, double twap, double volatility, int window) {
+        this.asset = asset;
+        this.timestamp = timestamp;
+        this.spot = spot;
+        this.twap = twap;
+        this.volatility = volatility;
+        this.window = window;
+    }
+
+    public String getAsset() {
+        return asset;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public double getSpot() {
+        return spot;
+    }
+
+    // time-weighted average over the last `window` ticks up to `timestamp`
+    public double getTwap() {
+        return twap;
+    }
+
+    // standard deviation of per-tick log returns over the same window
+    public double getVolatility() {
+        return volatility;
+    }
+
+    // number of ticks the twap and volatility actually cover
+    public int getWindow() {
+        return window;
+    }
+}
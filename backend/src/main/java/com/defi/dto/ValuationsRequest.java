@@ -0,0 +1,16 @@
+package com.defi.dto;
+
+import java.math.BigInteger;
+import java.util.List;
+
+public class ValuationsRequest {
+    private List<BigInteger> tokenIds;
+
+    public List<BigInteger> getTokenIds() {
+        return tokenIds;
+    }
+
+    public void setTokenIds(List<BigInteger> tokenIds) {
+        this.tokenIds = tokenIds;
+    }
+}
@@ -0,0 +1,249 @@
+package com.defi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.RemoteFunctionCall;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.tx.Contract;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces contract reads into JSON-RPC batch requests. Calls queued while
+ * a batch is being collected or is in flight go out together in the next
+ * HTTP POST, and each caller gets its own future back. Each call is timed
+ * from queueing to completion in ContractMetrics.
+ */
+public class BatchReader {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchReader.class);
+
+    private final Web3j web3j;
+    private final String fromAddress;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final ContractMetrics metrics;
+
+    private final BlockingQueue<PendingCall> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService senders;
+    private final Thread flusher;
+
+    private volatile boolean running = true;
+
+    public BatchReader(Web3j web3j, String fromAddress, int maxBatchSize, long lingerMillis, int maxInFlight,
+                       ContractMetrics metrics) {
+        this.web3j = web3j;
+        this.metrics = metrics;
+        this.fromAddress = fromAddress;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.senders = Executors.newFixedThreadPool(maxInFlight, r -> {
+            Thread t = new Thread(r, "rpc-batch-sender");
+            t.setDaemon(true);
+            return t;
+        });
+        this.flusher = new Thread(this::flushLoop, "rpc-batch-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queues an eth_call for the given wrapper function and returns its decoded
+     * outputs. function is the wrapper's FUNC_ constant for it, the metrics tag.
+     */
+    public CompletableFuture<List<Type>> call(Contract contract, String function, RemoteFunctionCall<?> call) {
+        return call(contract, function, call, DefaultBlockParameterName.LATEST);
+    }
+
+    public CompletableFuture<List<Type>> call(Contract contract, String function, RemoteFunctionCall<?> call,
+                                              DefaultBlockParameter block) {
+        PendingCall pending = new PendingCall(contract, function, call, block);
+        queue.add(pending);
+        // shutdown() may have drained the queue just before the add; nothing would take the call then
+        if (!running && queue.remove(pending)) {
+            fail(pending, new IllegalStateException("Batch reader is shut down"));
+        }
+        return pending.future;
+    }
+
+    /**
+     * Convenience for functions with a single return value.
+     */
+    public <T> CompletableFuture<T> read(Contract contract, String function, RemoteFunctionCall<T> call) {
+        return read(contract, function, call, DefaultBlockParameterName.LATEST);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> read(Contract contract, String function, RemoteFunctionCall<T> call,
+                                         DefaultBlockParameter block) {
+        return call(contract, function, call, block).thenApply(values -> {
+            if (values.isEmpty()) {
+                throw new IllegalStateException("Empty response from " + contract.getContractAddress());
+            }
+            return (T) values.get(0).getValue();
+        });
+    }
+
+    public void shutdown() {
+        running = false;
+        flusher.interrupt();
+        senders.shutdown();
+        PendingCall pending;
+        while ((pending = queue.poll()) != null) {
+            fail(pending, new IllegalStateException("Batch reader is shut down"));
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            List<PendingCall> batch = new ArrayList<>(maxBatchSize);
+            try {
+                batch.add(queue.take());
+
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingCall next = remaining > 0
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                senders.execute(() -> send(batch));
+            } catch (InterruptedException | RejectedExecutionException e) {
+                // shut down while the batch was being collected; shutdown() only fails what is still queued
+                for (PendingCall pending : batch) {
+                    fail(pending, new IllegalStateException("Batch reader is shut down", e));
+                }
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void send(List<PendingCall> batch) {
+        BatchRequest request = web3j.newBatch();
+        Map<Long, PendingCall> byId = new HashMap<>();
+        for (PendingCall pending : batch) {
+            Request<?, EthCall> ethCall = web3j.ethCall(
+                    Transaction.createEthCallTransaction(fromAddress, pending.to, pending.call.encodeFunctionCall()),
+                    pending.block);
+            request.add(ethCall);
+            byId.put(ethCall.getId(), pending);
+        }
+
+        BatchResponse response;
+        RpcUsage.beginBatch(usageShares(batch));
+        try {
+            response = request.send();
+        } catch (Exception e) {
+            log.warn("Batch of {} eth_calls failed", batch.size(), e);
+            for (PendingCall pending : batch) {
+                finish(pending, () -> fail(pending, e));
+            }
+            return;
+        } finally {
+            RpcUsage.endBatch();
+        }
+
+        for (Response<?> r : response.getResponses()) {
+            PendingCall pending = byId.remove(r.getId());
+            if (pending != null) {
+                finish(pending, () -> complete(pending, (EthCall) r));
+            }
+        }
+        for (PendingCall missing : byId.values()) {
+            finish(missing, () -> fail(missing, new IllegalStateException("No response in batch for call to " + missing.to)));
+        }
+    }
+
+    // calls per request in the batch, so each request is charged its share of the round trip
+    private static Map<RpcUsage, Integer> usageShares(List<PendingCall> batch) {
+        Map<RpcUsage, Integer> shares = new HashMap<>();
+        for (PendingCall pending : batch) {
+            if (pending.usage != null) {
+                shares.merge(pending.usage, 1, Integer::sum);
+            }
+        }
+        return shares;
+    }
+
+    // dependent stages that run inline on this thread keep working for the same request
+    private static void finish(PendingCall pending, Runnable completion) {
+        RpcUsage previous = RpcUsage.attach(pending.usage);
+        try {
+            completion.run();
+        } finally {
+            RpcUsage.attach(previous);
+        }
+    }
+
+    private void complete(PendingCall pending, EthCall response) {
+        if (response.hasError()) {
+            fail(pending, new IllegalStateException(response.getError().getMessage()));
+        } else if (response.isReverted()) {
+            record(pending, ContractMetrics.REVERTED);
+            pending.future.completeExceptionally(new IllegalStateException(response.getRevertReason()));
+        } else {
+            try {
+                List<Type> values = pending.call.decodeFunctionResponse(response.getValue());
+                record(pending, ContractMetrics.SUCCESS);
+                pending.future.complete(values);
+            } catch (RuntimeException e) {
+                fail(pending, e);
+            }
+        }
+    }
+
+    private void fail(PendingCall pending, Throwable e) {
+        record(pending, ContractMetrics.ERROR);
+        pending.future.completeExceptionally(e);
+    }
+
+    private void record(PendingCall pending, String outcome) {
+        metrics.recordCall(pending.contract, pending.function, ContractMetrics.READ, outcome,
+                System.nanoTime() - pending.queuedAt);
+    }
+
+    private static class PendingCall {
+        final String to;
+        final String contract;
+        final String function;
+        final RemoteFunctionCall<?> call;
+        final DefaultBlockParameter block;
+        final long queuedAt = System.nanoTime();
+        final RpcUsage usage = RpcUsage.current();
+        final CompletableFuture<List<Type>> future = new CompletableFuture<>();
+
+        PendingCall(Contract contract, String function, RemoteFunctionCall<?> call, DefaultBlockParameter block) {
+            this.to = contract.getContractAddress();
+            this.contract = ContractMetrics.contractName(contract);
+            this.function = function;
+            this.call = call;
+            this.block = block;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.defi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Single source of "a new block was mined" for the backend. Polls
+ * eth_blockNumber once per interval and notifies listeners only when the
+ * head moves, so per-block work costs one cheap call however many
+ * components depend on it. While a ChainSubscriber pushes heads the poll
+ * drops to the slower pushed interval and only guards against a silent
+ * subscription.
+ */
+public class BlockHeadTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockHeadTracker.class);
+
+    private final Web3j web3j;
+    private final List<LongConsumer> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "block-head-tracker");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final long pushedPollNanos;
+
+    private volatile long head = -1;
+    private volatile boolean pushed;
+    private volatile long lastPollAt;
+
+    public BlockHeadTracker(Web3j web3j, long pollMillis, long pushedPollMillis) {
+        this.web3j = web3j;
+        this.pushedPollNanos = TimeUnit.MILLISECONDS.toNanos(pushedPollMillis);
+        scheduler.scheduleWithFixedDelay(this::poll, 0, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void addListener(LongConsumer listener) {
+        listeners.add(listener);
+    }
+
+    // latest block seen, or -1 before the first successful poll
+    public long getHead() {
+        return head;
+    }
+
+    /**
+     * A head delivered by subscription; listeners see it at once.
+     */
+    public void onHead(long block) {
+        advance(block);
+    }
+
+    public void setPushed(boolean pushed) {
+        this.pushed = pushed;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void poll() {
+        long now = System.nanoTime();
+        if (pushed && now - lastPollAt < pushedPollNanos) {
+            return;
+        }
+        lastPollAt = now;
+        try {
+            advance(web3j.ethBlockNumber().send().getBlockNumber().longValueExact());
+        } catch (Exception e) {
+            log.warn("Block number poll failed", e);
+        }
+    }
+
+    // polls and pushes both land here, so each head is announced once and in order
+    private synchronized void advance(long latest) {
+        if (latest > head) {
+            head = latest;
+            for (LongConsumer listener : listeners) {
+                try {
+                    listener.accept(latest);
+                } catch (RuntimeException e) {
+                    log.warn("Block listener failed at block {}", latest, e);
+                }
+            }
+        }
+    }
+}
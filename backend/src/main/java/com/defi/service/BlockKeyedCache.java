@@ -0,0 +1,115 @@
+package com.defi.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * Bounded LRU of values read at a known block. An entry read at block B is
+ * served while B is still the head, or while every block up to the head has
+ * been checked for events and none of them touched the key. Events drop the
+ * entries they make stale through {@link #changed}.
+ */
+public class BlockKeyedCache<K, V> {
+
+    private final int maxEntries;
+    private final Map<K, Entry<V>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public BlockKeyedCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > BlockKeyedCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param head           block new entries are read at
+     * @param processedBlock highest block whose events have all been passed to {@link #changed}
+     * @param loader         reads the value at the given block
+     */
+    public CompletableFuture<V> get(K key, long head, long processedBlock, LongFunction<CompletableFuture<V>> loader) {
+        Entry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && (entry.block >= head || processedBlock >= head)) {
+                hits.increment();
+                return entry.value;
+            }
+            misses.increment();
+            entry = new Entry<>(head, new CompletableFuture<>());
+            entries.put(key, entry);
+        }
+
+        Entry<V> loading = entry;
+        loader.apply(head).whenComplete((value, error) -> {
+            if (error != null) {
+                synchronized (entries) {
+                    entries.remove(key, loading);
+                }
+                loading.value.completeExceptionally(error);
+            } else {
+                loading.value.complete(value);
+            }
+        });
+        return loading.value;
+    }
+
+    // value of key changed in the given block
+    public void changed(K key, long block) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.block < block) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    public void changedAll(long block) {
+        synchronized (entries) {
+            entries.values().removeIf(entry -> entry.block < block);
+        }
+    }
+
+    // value cached for key, or null if there is none or it has not loaded yet
+    public V peek(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            return entry != null && entry.value.isDone() && !entry.value.isCompletedExceptionally()
+                    ? entry.value.join() : null;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("size", size());
+        stats.put("hitRate", h + m == 0 ? 0.0 : (double) h / (h + m));
+        return stats;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static final class Entry<V> {
+        final long block;
+        final CompletableFuture<V> value;
+
+        Entry(long block, CompletableFuture<V> value) {
+            this.block = block;
+            this.value = value;
+        }
+    }
+}
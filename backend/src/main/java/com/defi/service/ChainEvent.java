@@ -0,0 +1,113 @@
+package com.defi.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigInteger;
+
+/**
+ * Decoded AssetToken/LendingPool log, or a MockDAI transfer into or out of
+ * the pool, in chain order. Only the fields that belong to the event type
+ * are set.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChainEvent {
+
+    public enum Type {
+        TRANSFER,
+        LOAN_CREATED,
+        LOAN_REPAID,
+        LOAN_LIQUIDATED,
+        STABLECOIN_TRANSFER
+    }
+
+    private final Type type;
+    private final long blockNumber;
+    private final long logIndex;
+    private final String transactionHash;
+
+    private String from;
+    private String to;
+    private BigInteger tokenId;
+    private BigInteger loanId;
+    private BigInteger amount;
+
+    public ChainEvent(Type type, long blockNumber, long logIndex, String transactionHash) {
+        this.type = type;
+        this.blockNumber = blockNumber;
+        this.logIndex = logIndex;
+        this.transactionHash = transactionHash;
+    }
+
+    public static ChainEvent transfer(long blockNumber, long logIndex, String txHash, String from, String to, BigInteger tokenId) {
+        ChainEvent event = new ChainEvent(Type.TRANSFER, blockNumber, logIndex, txHash);
+        event.from = from.toLowerCase();
+        event.to = to.toLowerCase();
+        event.tokenId = tokenId;
+        return event;
+    }
+
+    public static ChainEvent loanCreated(long blockNumber, long logIndex, String txHash, BigInteger loanId, BigInteger tokenId, BigInteger amount) {
+        ChainEvent event = new ChainEvent(Type.LOAN_CREATED, blockNumber, logIndex, txHash);
+        event.loanId = loanId;
+        event.tokenId = tokenId;
+        event.amount = amount;
+        return event;
+    }
+
+    public static ChainEvent loanRepaid(long blockNumber, long logIndex, String txHash, BigInteger loanId, BigInteger amount) {
+        ChainEvent event = new ChainEvent(Type.LOAN_REPAID, blockNumber, logIndex, txHash);
+        event.loanId = loanId;
+        event.amount = amount;
+        return event;
+    }
+
+    public static ChainEvent loanLiquidated(long blockNumber, long logIndex, String txHash, BigInteger loanId) {
+        ChainEvent event = new ChainEvent(Type.LOAN_LIQUIDATED, blockNumber, logIndex, txHash);
+        event.loanId = loanId;
+        return event;
+    }
+
+    public static ChainEvent stablecoinTransfer(long blockNumber, long logIndex, String txHash, String from, String to, BigInteger amount) {
+        ChainEvent event = new ChainEvent(Type.STABLECOIN_TRANSFER, blockNumber, logIndex, txHash);
+        event.from = from.toLowerCase();
+        event.to = to.toLowerCase();
+        event.amount = amount;
+        return event;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public long getLogIndex() {
+        return logIndex;
+    }
+
+    public String getTransactionHash() {
+        return transactionHash;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public BigInteger getTokenId() {
+        return tokenId;
+    }
+
+    public BigInteger getLoanId() {
+        return loanId;
+    }
+
+    public BigInteger getAmount() {
+        return amount;
+    }
+}
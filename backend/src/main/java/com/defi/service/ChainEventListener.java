@@ -0,0 +1,15 @@
+package com.defi.service;
+
+/**
+ * Receives decoded chain events from ChainEventStream, in chain order. There
+ * is no retraction: if a reorg removes a log after its event was delivered,
+ * state a listener built from it stays until later events correct it.
+ */
+public interface ChainEventListener {
+
+    void onEvent(ChainEvent event);
+
+    // called once every event up to and including this block has been delivered
+    default void onBlockProcessed(long blockNumber) {
+    }
+}
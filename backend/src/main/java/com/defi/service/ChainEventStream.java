@@ -0,0 +1,330 @@
+package com.defi.service;
+
+import com.defi.contracts.AssetToken;
+import com.defi.contracts.LendingPool;
+import com.defi.contracts.MockDAI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.EventEncoder;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.Log;
+
+import jakarta.annotation.PreDestroy;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The backend's one subscription to AssetToken, LendingPool and MockDAI logs.
+ * On every new head it fetches the logs since the last processed block through
+ * LogBackfill (one eth_getLogs when close to the head, parallel adaptive
+ * chunks when catching up on history), decodes them with the generated
+ * wrappers and hands them to every listener in chain order. With a ChainSubscriber connected, logs
+ * are pushed as blocks are imported and eth_getLogs only fills the blocks
+ * before the subscription went live; a log seen both ways is delivered once.
+ * Events already delivered are not rolled back when a reorg removes their log.
+ */
+@Service
+public class ChainEventStream {
+
+    private static final Logger log = LoggerFactory.getLogger(ChainEventStream.class);
+
+    private static final String TRANSFER_TOPIC = EventEncoder.encode(AssetToken.TRANSFER_EVENT);
+    private static final String LOAN_CREATED_TOPIC = EventEncoder.encode(LendingPool.LOANCREATED_EVENT);
+    private static final String LOAN_REPAID_TOPIC = EventEncoder.encode(LendingPool.LOANREPAID_EVENT);
+    private static final String LOAN_LIQUIDATED_TOPIC = EventEncoder.encode(LendingPool.LOANLIQUIDATED_EVENT);
+
+    // how far behind the processed block a late pushed log is still recognised as a duplicate
+    private static final long DEDUPE_WINDOW = 128;
+
+    @Autowired
+    private web3service web3Service;
+
+    @Value("${web3.events.start-block:0}")
+    private long startBlock;
+
+    @Value("${web3.events.max-range:5000}")
+    private long maxRange;
+
+    @Value("${web3.events.backfill.parallelism:4}")
+    private int backfillParallelism;
+
+    @Value("${web3.events.backfill.target-ms:2000}")
+    private long backfillTargetMs;
+
+    private final List<ChainEventListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean catchUpQueued = new AtomicBoolean();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "chain-events");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile long processedBlock = -1;
+    private LogBackfill backfill;
+
+    private String assetTokenAddress;
+    private String lendingPoolAddress;
+    private String mockDaiAddress;
+
+    // worker thread only: first block covered by pushed logs, the (block, logIndex) keys delivered
+    // recently, and pushed logs held back until the blocks before them have been filled
+    private long liveFrom = Long.MAX_VALUE;
+    private final NavigableSet<Long> delivered = new TreeSet<>();
+    private final NavigableMap<Long, Log> held = new TreeMap<>();
+
+    public void addListener(ChainEventListener listener) {
+        listeners.add(listener);
+    }
+
+    // highest block whose events have all been delivered, -1 before the first catch-up
+    public long getProcessedBlock() {
+        return processedBlock;
+    }
+
+    /**
+     * Starts from this block instead of web3.events.start-block; for
+     * ChainStateStore, which has restored everything before it.
+     */
+    public void resumeFrom(long block) {
+        startBlock = block;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        processedBlock = startBlock - 1;
+        assetTokenAddress = web3Service.getAssetToken().getContractAddress().toLowerCase();
+        lendingPoolAddress = web3Service.getLendingPool().getContractAddress().toLowerCase();
+        mockDaiAddress = web3Service.getMockDAI().getContractAddress().toLowerCase();
+        backfill = new LogBackfill(web3Service.getWeb3j(), backfillParallelism, maxRange, backfillTargetMs);
+        // first, so later listeners that read loans already see this block's invalidations
+        listeners.add(0, web3Service.getLoanCache());
+        web3Service.getBlockHeads().addListener(head -> scheduleCatchUp());
+        scheduleCatchUp();
+
+        ChainSubscriber subscriber = web3Service.getChainSubscriber();
+        if (subscriber != null) {
+            subscriber.start(new Pushed(web3Service.getBlockHeads()));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+        if (backfill != null) {
+            backfill.shutdown();
+        }
+    }
+
+    private class Pushed implements ChainSubscriber.Listener {
+
+        private final BlockHeadTracker blockHeads;
+
+        Pushed(BlockHeadTracker blockHeads) {
+            this.blockHeads = blockHeads;
+        }
+
+        @Override
+        public void onHead(long block) {
+            blockHeads.onHead(block);
+        }
+
+        @Override
+        public void onLog(Log entry) {
+            worker.execute(() -> deliverPushed(entry));
+        }
+
+        @Override
+        public void onLive(long fromBlock) {
+            worker.execute(() -> liveFrom = fromBlock);
+            blockHeads.setPushed(true);
+        }
+
+        @Override
+        public void onDown() {
+            blockHeads.setPushed(false);
+            worker.execute(() -> {
+                liveFrom = Long.MAX_VALUE;
+                held.clear();
+            });
+            // whatever was missed while down comes back through eth_getLogs
+            scheduleCatchUp();
+        }
+    }
+
+    private void scheduleCatchUp() {
+        if (catchUpQueued.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                catchUpQueued.set(false);
+                catchUp();
+            });
+        }
+    }
+
+    private void catchUp() {
+        long head = web3Service.getBlockHeads().getHead();
+        if (processedBlock + 1 >= liveFrom) {
+            // every log from here on is pushed; the head block may still have some on the way
+            releaseHeld();
+            if (head - 1 > processedBlock) {
+                markProcessed(head - 1);
+            }
+            return;
+        }
+        // fill up to where pushed logs take over, then the branch above applies
+        head = Math.min(head, liveFrom - 1);
+        if (processedBlock >= head) {
+            return;
+        }
+        long from = processedBlock + 1;
+        long started = System.nanoTime();
+        try {
+            // a failed chunk ends the pass; it is retried from the same block on the next head
+            long reached = backfill.fetch(from, head, this::filter, (chunkFrom, chunkTo, logs) -> {
+                for (Log entry : logs) {
+                    deliver(entry);
+                }
+                markProcessed(chunkTo);
+                releaseHeld();
+            });
+            if (reached - from >= maxRange) {
+                log.info("Caught up on blocks {}-{} in {} ms", from, reached, (System.nanoTime() - started) / 1_000_000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Catching up from block {} failed", from, e);
+        }
+    }
+
+    private void markProcessed(long block) {
+        processedBlock = block;
+        delivered.headSet(key(block - DEDUPE_WINDOW, 0)).clear();
+        for (ChainEventListener listener : listeners) {
+            listener.onBlockProcessed(block);
+        }
+    }
+
+    private void deliverPushed(Log entry) {
+        long block = entry.getBlockNumber().longValueExact();
+        if (block <= processedBlock - DEDUPE_WINDOW) {
+            return;
+        }
+        if (entry.isRemoved()) {
+            unwind(entry);
+            return;
+        }
+        if (block <= processedBlock || processedBlock + 1 >= liveFrom) {
+            // late, or live with nothing missing before it: a late log is delivered out of order rather than lost
+            deliver(entry);
+        } else {
+            held.put(key(block, entry.getLogIndex().longValueExact()), entry);
+        }
+    }
+
+    private void releaseHeld() {
+        NavigableMap<Long, Log> ready = processedBlock + 1 >= liveFrom ? held : held.headMap(key(processedBlock + 1, 0), false);
+        for (Log entry : ready.values()) {
+            deliver(entry);
+        }
+        ready.clear();
+    }
+
+    /**
+     * A reorg took the log back out. A log still held is dropped; one already
+     * delivered is forgotten, so the log the new branch puts at the same
+     * block and index is not mistaken for a duplicate. Listener state built
+     * from the removed log is not rolled back.
+     */
+    private void unwind(Log entry) {
+        long key = key(entry.getBlockNumber().longValueExact(), entry.getLogIndex().longValueExact());
+        if (held.remove(key) == null && delivered.remove(key)) {
+            log.warn("Log {} of block {} (tx {}) was removed by a reorg after it was delivered",
+                    entry.getLogIndex(), entry.getBlockNumber(), entry.getTransactionHash());
+        }
+    }
+
+    private void deliver(Log entry) {
+        if (entry.isRemoved() || !delivered.add(key(entry.getBlockNumber().longValueExact(),
+                entry.getLogIndex().longValueExact()))) {
+            return;
+        }
+        ChainEvent event = decode(entry);
+        if (event != null) {
+            dispatch(event);
+        }
+    }
+
+    private static long key(long block, long logIndex) {
+        return (block << 20) | logIndex;
+    }
+
+    private EthFilter filter(long from, long to) {
+        EthFilter filter = new EthFilter(
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(from)),
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(to)),
+                List.of(assetTokenAddress, lendingPoolAddress, mockDaiAddress));
+        filter.addOptionalTopics(TRANSFER_TOPIC, LOAN_CREATED_TOPIC, LOAN_REPAID_TOPIC, LOAN_LIQUIDATED_TOPIC);
+        return filter;
+    }
+
+    private void dispatch(ChainEvent event) {
+        for (ChainEventListener listener : listeners) {
+            try {
+                listener.onEvent(event);
+            } catch (RuntimeException e) {
+                log.warn("Listener {} failed on {} in block {}", listener.getClass().getSimpleName(),
+                        event.getType(), event.getBlockNumber(), e);
+            }
+        }
+    }
+
+    private ChainEvent decode(Log entry) {
+        if (entry.isRemoved() || entry.getTopics().isEmpty()) {
+            return null;
+        }
+        long block = entry.getBlockNumber().longValueExact();
+        long index = entry.getLogIndex().longValueExact();
+        String tx = entry.getTransactionHash();
+        String topic = entry.getTopics().get(0);
+        String address = entry.getAddress().toLowerCase();
+
+        if (address.equals(mockDaiAddress)) {
+            // ERC-20 Transfer shares the ERC-721 topic; only pool liquidity moves are of interest
+            if (!topic.equals(TRANSFER_TOPIC)) {
+                return null;
+            }
+            MockDAI.TransferEventResponse e = MockDAI.getTransferEventFromLog(entry);
+            if (!e.from.equalsIgnoreCase(lendingPoolAddress) && !e.to.equalsIgnoreCase(lendingPoolAddress)) {
+                return null;
+            }
+            return ChainEvent.stablecoinTransfer(block, index, tx, e.from, e.to, e.value);
+        } else if (topic.equals(TRANSFER_TOPIC)) {
+            AssetToken.TransferEventResponse e = AssetToken.getTransferEventFromLog(entry);
+            return ChainEvent.transfer(block, index, tx, e.from, e.to, e.tokenId);
+        } else if (topic.equals(LOAN_CREATED_TOPIC)) {
+            LendingPool.LoanCreatedEventResponse e = LendingPool.getLoanCreatedEventFromLog(entry);
+            return ChainEvent.loanCreated(block, index, tx, e.loanId, e.tokenId, e.amount);
+        } else if (topic.equals(LOAN_REPAID_TOPIC)) {
+            LendingPool.LoanRepaidEventResponse e = LendingPool.getLoanRepaidEventFromLog(entry);
+            return ChainEvent.loanRepaid(block, index, tx, e.loanId, e.amount);
+        } else if (topic.equals(LOAN_LIQUIDATED_TOPIC)) {
+            LendingPool.LoanLiquidatedEventResponse e = LendingPool.getLoanLiquidatedEventFromLog(entry);
+            return ChainEvent.loanLiquidated(block, index, tx, e.loanId);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,425 @@
+package com.defi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.response.EthBlock;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Keeps LendingIndex and LoanBook on disk so a restart resumes where the last
+ * run stopped instead of replaying the chain from web3.events.start-block.
+ * Every checkpoint-ms a compacted checkpoint of both is written, named after
+ * the first block it does not cover; the loan and transfer events of later
+ * blocks are appended to a memory-mapped segment that goes with it, with a
+ * marker after each processed block. Once the application is ready, and
+ * before ChainEventStream and LoanBook start, the latest checkpoint is
+ * mapped, the segment replayed up to its last complete block, and
+ * ChainEventStream resumes from the block after that.
+ */
+@Service
+public class ChainStateStore implements ChainEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ChainStateStore.class);
+
+    private static final int CHECKPOINT_MAGIC = 0x4c4e4443;
+    private static final int SEGMENT_MAGIC = 0x4c4e4453;
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER = 16;
+
+    private static final byte RECORD_EVENT = 1;
+    private static final byte RECORD_BLOCK = 2;
+
+    @Autowired
+    private web3service web3Service;
+
+    @Autowired
+    private ChainEventStream chainEvents;
+
+    @Autowired
+    private LendingIndex lendingIndex;
+
+    @Autowired
+    private LoanBook loanBook;
+
+    @Value("${web3.state.dir:}")
+    private String dir;
+
+    @Value("${web3.state.checkpoint-ms:60000}")
+    private long checkpointMs;
+
+    @Value("${web3.state.segment-bytes:16777216}")
+    private int segmentBytes;
+
+    private Path root;
+    private String contracts;
+
+    // chain-events thread only, after init
+    private MappedByteBuffer segment;
+    private long segmentBlock = -1;
+    private boolean overflowed;
+    private long lastCheckpoint;
+
+    @PostConstruct
+    public void init() {
+        if (dir == null || dir.isBlank()) {
+            return;
+        }
+        root = Path.of(dir);
+        contracts = (web3Service.getAssetToken().getContractAddress() + ","
+                + web3Service.getLendingPool().getContractAddress()).toLowerCase();
+        chainEvents.addListener(this);
+    }
+
+    // ahead of the other ready listeners, which start the event stream and the loan book bootstrap
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void start() {
+        if (root == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(root);
+            restore();
+        } catch (IOException | RuntimeException e) {
+            // a missing or unreadable snapshot only costs a cold start
+            log.warn("Could not restore chain state from {}; starting from the chain", root, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    // -------------------------- Recording --------------------------
+
+    @Override
+    public void onEvent(ChainEvent event) {
+        if (segment == null || overflowed || event.getType() == ChainEvent.Type.STABLECOIN_TRANSFER) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RECORD_EVENT);
+            out.writeByte(event.getType().ordinal());
+            out.writeLong(event.getBlockNumber());
+            out.writeLong(event.getLogIndex());
+            writeString(out, event.getTransactionHash());
+            writeString(out, event.getFrom());
+            writeString(out, event.getTo());
+            writeBigInteger(out, event.getTokenId());
+            writeBigInteger(out, event.getLoanId());
+            writeBigInteger(out, event.getAmount());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        append(bytes.toByteArray());
+    }
+
+    @Override
+    public void onBlockProcessed(long blockNumber) {
+        if (root == null) {
+            return;
+        }
+        if (segment != null && !overflowed) {
+            ByteBuffer marker = ByteBuffer.allocate(9).put(RECORD_BLOCK).putLong(blockNumber);
+            append(marker.array());
+        }
+        boolean due = segment == null || overflowed || segment.position() > segmentBytes / 4 * 3
+                || System.currentTimeMillis() - lastCheckpoint >= checkpointMs;
+        // a checkpoint is only consistent once the loan book has loaded every loan
+        if (due && loanBook.isReady()) {
+            checkpoint(blockNumber + 1);
+        }
+    }
+
+    // record length first, written after the body, so a reader never follows a half-written record
+    private void append(byte[] record) {
+        int position = segment.position();
+        if (position + 4 + record.length + 4 > segment.capacity()) {
+            // nothing more is recorded until the next checkpoint; a restart replays up to the last marker
+            log.warn("State segment {} is full; recording resumes at the next checkpoint", segmentBlock);
+            overflowed = true;
+            return;
+        }
+        segment.position(position + 4);
+        segment.put(record);
+        segment.putInt(segment.position(), 0);
+        segment.putInt(position, record.length);
+    }
+
+    private void checkpoint(long nextBlock) {
+        long started = System.nanoTime();
+        Path file = root.resolve(String.format("checkpoint-%012d.bin", nextBlock));
+        Path tmp = root.resolve(file.getFileName() + ".tmp");
+        try {
+            String hash = nextBlock > 0 ? blockHash(nextBlock - 1) : "";
+            if (hash == null) {
+                return;
+            }
+            try (FileOutputStream stream = new FileOutputStream(tmp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+                out.writeInt(CHECKPOINT_MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(nextBlock);
+                writeString(out, hash);
+                writeString(out, contracts);
+                lendingIndex.writeCheckpoint(out);
+                loanBook.writeCheckpoint(out);
+                out.flush();
+                stream.getChannel().force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            openSegment(nextBlock, true);
+            lastCheckpoint = System.currentTimeMillis();
+            deleteAllBut(nextBlock);
+            log.debug("Checkpoint at block {} written in {} ms", nextBlock, (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write checkpoint at block {}", nextBlock, e);
+            lastCheckpoint = System.currentTimeMillis();
+        }
+    }
+
+    private void openSegment(long block, boolean create) throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        Path file = root.resolve(String.format("segment-%012d.log", block));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        if (create) {
+            segment.putInt(0, SEGMENT_MAGIC).putInt(4, VERSION).putLong(8, block).putInt(SEGMENT_HEADER, 0);
+            segment.position(SEGMENT_HEADER);
+        }
+        segmentBlock = block;
+        overflowed = false;
+    }
+
+    // block -1 deletes every checkpoint and segment; other files in the directory are left alone
+    private void deleteAllBut(long block) throws IOException {
+        try (Stream<Path> files = Files.list(root)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                long fileBlock = blockOf(file);
+                if ((name.startsWith("checkpoint-") || name.startsWith("segment-"))
+                        && fileBlock >= 0 && fileBlock != block) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // -------------------------- Restore --------------------------
+
+    private void restore() throws IOException {
+        long started = System.nanoTime();
+        Path latest = null;
+        try (Stream<Path> files = Files.list(root)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("checkpoint-") && name.endsWith(".bin")
+                        && (latest == null || blockOf(file) > blockOf(latest))) {
+                    latest = file;
+                }
+            }
+        }
+        if (latest == null) {
+            return;
+        }
+
+        ByteBuffer checkpoint;
+        try (FileChannel channel = FileChannel.open(latest, StandardOpenOption.READ)) {
+            checkpoint = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (checkpoint.getInt() != CHECKPOINT_MAGIC || checkpoint.getInt() != VERSION) {
+            log.warn("Ignoring {}: not a checkpoint of this version", latest);
+            deleteAllBut(-1);
+            return;
+        }
+        long nextBlock = checkpoint.getLong();
+        String hash = readString(checkpoint);
+        if (!contracts.equals(readString(checkpoint))) {
+            log.info("Ignoring {}: written for other contract addresses", latest);
+            deleteAllBut(-1);
+            return;
+        }
+        // a restarted dev chain reuses block numbers; the hash tells them apart
+        if (nextBlock > 0 && !hash.equals(blockHash(nextBlock - 1))) {
+            log.info("Ignoring {}: block {} is not on this chain", latest, nextBlock - 1);
+            deleteAllBut(-1);
+            return;
+        }
+        lendingIndex.readCheckpoint(checkpoint);
+        loanBook.readCheckpoint(checkpoint);
+
+        long resumeFrom = nextBlock;
+        int replayed = 0;
+        Path segmentFile = root.resolve(String.format("segment-%012d.log", nextBlock));
+        if (Files.exists(segmentFile)) {
+            openSegment(nextBlock, false);
+            if (segment.getInt(0) == SEGMENT_MAGIC && segment.getInt(4) == VERSION && segment.getLong(8) == nextBlock) {
+                long last = replay(segment);
+                replayed = (int) Math.max(0, last - nextBlock + 1);
+                resumeFrom = Math.max(resumeFrom, last + 1);
+            } else {
+                segment = null;
+            }
+        }
+        chainEvents.resumeFrom(resumeFrom);
+        log.info("Restored chain state up to block {} from {} and {} replayed blocks in {} ms",
+                resumeFrom - 1, latest.getFileName(), replayed, (System.nanoTime() - started) / 1_000_000);
+        // what was replayed goes into a fresh checkpoint as soon as the stream processes a block
+        lastCheckpoint = replayed > 0 ? 0 : System.currentTimeMillis();
+    }
+
+    /**
+     * Applies the segment's events block by block; events after the last
+     * marker belong to a block that was never finished and are dropped. Leaves
+     * the segment positioned after that marker and returns its block, or -1.
+     */
+    private long replay(MappedByteBuffer from) {
+        from.position(SEGMENT_HEADER);
+        List<ChainEvent> pending = new ArrayList<>();
+        long last = -1;
+        int end = SEGMENT_HEADER;
+        while (from.position() + 4 <= from.capacity()) {
+            int length = from.getInt();
+            if (length <= 0 || from.position() + length > from.capacity()) {
+                break;
+            }
+            ByteBuffer record = from.slice(from.position(), length);
+            from.position(from.position() + length);
+            if (record.get() == RECORD_BLOCK) {
+                for (ChainEvent event : pending) {
+                    lendingIndex.onEvent(event);
+                    loanBook.onEvent(event);
+                }
+                pending.clear();
+                last = record.getLong();
+                end = from.position();
+            } else {
+                pending.add(readEvent(record));
+            }
+        }
+        from.position(end);
+        from.putInt(end, 0);
+        return last;
+    }
+
+    private static ChainEvent readEvent(ByteBuffer in) {
+        ChainEvent.Type type = ChainEvent.Type.values()[in.get()];
+        long block = in.getLong();
+        long index = in.getLong();
+        String tx = readString(in);
+        String from = readString(in);
+        String to = readString(in);
+        BigInteger tokenId = readBigInteger(in);
+        BigInteger loanId = readBigInteger(in);
+        BigInteger amount = readBigInteger(in);
+        return switch (type) {
+            case TRANSFER -> ChainEvent.transfer(block, index, tx, from, to, tokenId);
+            case LOAN_CREATED -> ChainEvent.loanCreated(block, index, tx, loanId, tokenId, amount);
+            case LOAN_REPAID -> ChainEvent.loanRepaid(block, index, tx, loanId, amount);
+            case LOAN_LIQUIDATED -> ChainEvent.loanLiquidated(block, index, tx, loanId);
+            case STABLECOIN_TRANSFER -> ChainEvent.stablecoinTransfer(block, index, tx, from, to, amount);
+        };
+    }
+
+    // null if the node does not have the block
+    private String blockHash(long block) throws IOException {
+        EthBlock.Block found = web3Service.getWeb3j()
+                .ethGetBlockByNumber(DefaultBlockParameter.valueOf(BigInteger.valueOf(block)), false)
+                .send().getBlock();
+        return found == null ? null : found.getHash();
+    }
+
+    private static long blockOf(Path file) {
+        String name = file.getFileName().toString();
+        int dash = name.indexOf('-');
+        int dot = name.indexOf('.');
+        if (dash < 0 || dot < dash) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(dash + 1, dot));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // -------------------------- Encoding --------------------------
+
+    // strings and uint256 values are length-prefixed; -1 stands for null
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeBigInteger(DataOutput out, BigInteger value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.toByteArray();
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static BigInteger readBigInteger(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new BigInteger(bytes);
+    }
+}
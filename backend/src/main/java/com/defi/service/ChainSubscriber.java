@@ -0,0 +1,183 @@
+package com.defi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.websocket.WebSocketService;
+import org.web3j.protocol.websocket.events.NewHead;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * newHeads and logs subscriptions over a WebSocket connection, so blocks and
+ * events arrive as the node imports them instead of on the next poll. On any
+ * error or close the connection is dropped and rebuilt with backoff; the
+ * listener is told when the subscriptions go down and which block they are
+ * complete from once they are back, so it can fill the gap over HTTP.
+ * Logs are read from the raw notifications: web3j's typed log drops the
+ * removed flag a node sets when a reorg takes a log back out.
+ */
+public class ChainSubscriber {
+
+    private static final Logger log = LoggerFactory.getLogger(ChainSubscriber.class);
+
+    private static final long MIN_BACKOFF_MS = 500;
+
+    private static final ObjectMapper JSON = ObjectMapperFactory.getObjectMapper();
+
+    public interface Listener {
+
+        void onHead(long block);
+
+        void onLog(Log entry);
+
+        /**
+         * Every log from this block on will arrive through onLog.
+         */
+        void onLive(long fromBlock);
+
+        void onDown();
+    }
+
+    private final String url;
+    private final List<String> addresses;
+    private final long maxBackoffMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "chain-subscriber");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Listener listener;
+    private long backoffMillis = MIN_BACKOFF_MS;
+    private volatile long reconnects;
+
+    // the current connection; only touched on the scheduler thread
+    private WebSocketService service;
+    private boolean live;
+    private boolean reconnectQueued;
+    private volatile boolean connected;
+
+    public ChainSubscriber(String url, List<String> addresses, long maxBackoffMillis) {
+        this.url = url;
+        this.addresses = addresses;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public void start(Listener listener) {
+        this.listener = listener;
+        scheduler.execute(this::connect);
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public long getReconnects() {
+        return reconnects;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        close();
+    }
+
+    private void connect() {
+        reconnectQueued = false;
+        try {
+            WebSocketService ws = new WebSocketService(url, false);
+            ws.connect(this::onMessage, e -> scheduler.execute(() -> drop(ws, "error: " + e.getMessage())),
+                    () -> scheduler.execute(() -> drop(ws, "closed by node")));
+            service = ws;
+            Web3j web3 = Web3j.build(ws);
+
+            // logs first: the node registers subscriptions in order, so once the first
+            // head arrives every log of that block and later is on its way too
+            web3.logsNotifications(addresses, List.of()).subscribe(
+                    n -> { },
+                    e -> scheduler.execute(() -> drop(ws, "logs subscription failed: " + e.getMessage())));
+            web3.newHeadsNotifications().subscribe(
+                    n -> onHead(n.getParams().getResult()),
+                    e -> scheduler.execute(() -> drop(ws, "newHeads subscription failed: " + e.getMessage())));
+            connected = true;
+            log.info("Subscribed to heads and logs over {}", url);
+        } catch (Exception e) {
+            log.warn("WebSocket connect to {} failed: {}", url, e.getMessage());
+            close();
+            scheduleReconnect();
+        }
+    }
+
+    private void onHead(NewHead head) {
+        long block = Numeric.decodeQuantity(head.getNumber()).longValueExact();
+        scheduler.execute(() -> {
+            if (!live && connected) {
+                live = true;
+                backoffMillis = MIN_BACKOFF_MS;
+                listener.onLive(block);
+            }
+        });
+        listener.onHead(block);
+    }
+
+    // ignores callbacks from connections already replaced
+    private void drop(WebSocketService from, String reason) {
+        if (from != service) {
+            return;
+        }
+        log.warn("WebSocket subscriptions to {} lost ({}), falling back to polling", url, reason);
+        close();
+        listener.onDown();
+        scheduleReconnect();
+    }
+
+    private void close() {
+        connected = false;
+        live = false;
+        // closing the socket ends both subscriptions; disposing them first would try an
+        // eth_unsubscribe over a socket that may already be gone
+        if (service != null) {
+            try {
+                service.close();
+            } catch (RuntimeException e) {
+                log.debug("Closing WebSocket to {} failed", url, e);
+            }
+            service = null;
+        }
+    }
+
+    private void scheduleReconnect() {
+        if (reconnectQueued || scheduler.isShutdown()) {
+            return;
+        }
+        reconnectQueued = true;
+        reconnects++;
+        long delay = backoffMillis;
+        backoffMillis = Math.min(backoffMillis * 2, maxBackoffMillis);
+        scheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // every message on the socket, after web3j has handled it; only log notifications have a logIndex
+    private void onMessage(String message) {
+        if (!message.contains("\"eth_subscription\"")) {
+            return;
+        }
+        try {
+            JsonNode result = JSON.readTree(message).path("params").path("result");
+            if (result.has("logIndex")) {
+                listener.onLog(JSON.treeToValue(result, Log.class));
+            }
+        } catch (IOException e) {
+            log.warn("Unreadable notification from {}: {}", url, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.defi.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.web3j.tx.Contract;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer timers for contract calls made through the generated wrappers:
+ * web3.contract.calls for eth_calls and transaction sends, and web3.tx.mined
+ * for the time from send to receipt. Both are tagged with contract, function
+ * and outcome and publish percentile histograms. Callers pass the function
+ * name, the wrapper's FUNC_ constant, alongside each call.
+ */
+public class ContractMetrics {
+
+    public static final String READ = "read";
+    public static final String WRITE = "write";
+
+    public static final String SUCCESS = "success";
+    public static final String REVERTED = "reverted";
+    public static final String ERROR = "error";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public ContractMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    public void recordCall(String contract, String function, String type, String outcome, long nanos) {
+        timer("web3.contract.calls", contract, function, type, outcome).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordMined(String contract, String function, String outcome, long nanos) {
+        timer("web3.tx.mined", contract, function, null, outcome).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public static String contractName(Contract contract) {
+        return contract.getClass().getSimpleName();
+    }
+
+    private Timer timer(String name, String contract, String function, String type, String outcome) {
+        String key = name + '|' + contract + '|' + function + '|' + type + '|' + outcome;
+        return timers.computeIfAbsent(key, k -> {
+            Timer.Builder builder = Timer.builder(name)
+                    .tag("contract", contract)
+                    .tag("function", function)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(Duration.ofMinutes(5));
+            if (type != null) {
+                builder.tag("type", type);
+            }
+            return builder.register(registry);
+        });
+    }
+}
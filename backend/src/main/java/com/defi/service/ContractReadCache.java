@@ -0,0 +1,179 @@
+package com.defi.service;
+
+import com.defi.contracts.AssetToken;
+import com.defi.contracts.LendingPool;
+import com.defi.contracts.MockDAI;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.core.RemoteFunctionCall;
+import org.web3j.tx.Contract;
+
+import jakarta.annotation.PostConstruct;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Typed, cached reads of contract state that rarely or never changes. Each
+ * function has a policy: PERMANENT values are read once, TTL values are
+ * re-read after web3.cache.ttl-ms, and EVENT values are dropped when a
+ * LendingPool or stablecoin event changes them (with the TTL as a safety
+ * net).
+ */
+@Service
+public class ContractReadCache implements ChainEventListener {
+
+    public enum Policy {
+        PERMANENT,
+        TTL,
+        EVENT
+    }
+
+    // pool liquidity is the stablecoin balance of the pool, it has no FUNC_ constant of its own
+    public static final String POOL_LIQUIDITY = "poolLiquidity";
+
+    private static final Map<String, Policy> POLICIES = Map.ofEntries(
+            Map.entry(key(AssetToken.class, AssetToken.FUNC_TOKENURI), Policy.PERMANENT),
+            Map.entry(key(AssetToken.class, AssetToken.FUNC_NAME), Policy.PERMANENT),
+            Map.entry(key(AssetToken.class, AssetToken.FUNC_SYMBOL), Policy.PERMANENT),
+            Map.entry(key(LendingPool.class, LendingPool.FUNC_STABLECOIN), Policy.PERMANENT),
+            Map.entry(key(LendingPool.class, LendingPool.FUNC_ASSETTOKEN), Policy.PERMANENT),
+            // updateInterestRate emits no event
+            Map.entry(key(LendingPool.class, LendingPool.FUNC_INTERESTRATE), Policy.TTL),
+            Map.entry(key(LendingPool.class, LendingPool.FUNC_LOANIDCOUNTER), Policy.EVENT),
+            Map.entry(key(LendingPool.class, POOL_LIQUIDITY), Policy.EVENT),
+            Map.entry(key(MockDAI.class, MockDAI.FUNC_NAME), Policy.PERMANENT),
+            Map.entry(key(MockDAI.class, MockDAI.FUNC_SYMBOL), Policy.PERMANENT),
+            Map.entry(key(MockDAI.class, MockDAI.FUNC_DECIMALS), Policy.PERMANENT));
+
+    @Autowired
+    private web3service web3Service;
+
+    @Autowired
+    private ChainEventStream chainEvents;
+
+    @Value("${web3.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${web3.cache.ttl-ms:30000}")
+    private long ttlMs;
+
+    private ReadThroughCache cache;
+    private AssetToken assetToken;
+    private LendingPool lendingPool;
+    private MockDAI mockDAI;
+
+    @PostConstruct
+    public void init() {
+        cache = new ReadThroughCache(maxEntries);
+        assetToken = web3Service.getAssetToken();
+        lendingPool = web3Service.getLendingPool();
+        mockDAI = web3Service.getMockDAI();
+        chainEvents.addListener(this);
+    }
+
+    // -------------------------- AssetToken --------------------------
+
+    public CompletableFuture<String> tokenURI(BigInteger tokenId) {
+        return read(assetToken, AssetToken.FUNC_TOKENURI, tokenId, () -> assetToken.tokenURI(tokenId));
+    }
+
+    public CompletableFuture<String> assetTokenName() {
+        return read(assetToken, AssetToken.FUNC_NAME, null, () -> assetToken.name());
+    }
+
+    public CompletableFuture<String> assetTokenSymbol() {
+        return read(assetToken, AssetToken.FUNC_SYMBOL, null, () -> assetToken.symbol());
+    }
+
+    // -------------------------- LendingPool --------------------------
+
+    public CompletableFuture<String> stablecoin() {
+        return read(lendingPool, LendingPool.FUNC_STABLECOIN, null, () -> lendingPool.stablecoin());
+    }
+
+    public CompletableFuture<String> collateralToken() {
+        return read(lendingPool, LendingPool.FUNC_ASSETTOKEN, null, () -> lendingPool.assetToken());
+    }
+
+    public CompletableFuture<BigInteger> interestRate() {
+        return read(lendingPool, LendingPool.FUNC_INTERESTRATE, null, () -> lendingPool.interestRate());
+    }
+
+    public CompletableFuture<BigInteger> loanIdCounter() {
+        return read(lendingPool, LendingPool.FUNC_LOANIDCOUNTER, null, () -> lendingPool.loanIdCounter());
+    }
+
+    public CompletableFuture<BigInteger> poolLiquidity() {
+        // cached under the pool, but the call goes to the token contract
+        return read(lendingPool, POOL_LIQUIDITY, null, mockDAI, MockDAI.FUNC_BALANCEOF,
+                () -> mockDAI.balanceOf(lendingPool.getContractAddress()));
+    }
+
+    // -------------------------- MockDAI --------------------------
+
+    public CompletableFuture<String> stablecoinName() {
+        return read(mockDAI, MockDAI.FUNC_NAME, null, () -> mockDAI.name());
+    }
+
+    public CompletableFuture<String> stablecoinSymbol() {
+        return read(mockDAI, MockDAI.FUNC_SYMBOL, null, () -> mockDAI.symbol());
+    }
+
+    public CompletableFuture<BigInteger> stablecoinDecimals() {
+        return read(mockDAI, MockDAI.FUNC_DECIMALS, null, () -> mockDAI.decimals());
+    }
+
+    // -------------------------- Invalidation --------------------------
+
+    @Override
+    public void onEvent(ChainEvent event) {
+        switch (event.getType()) {
+            case LOAN_CREATED -> {
+                invalidate(lendingPool, LendingPool.FUNC_LOANIDCOUNTER);
+                invalidate(lendingPool, POOL_LIQUIDITY);
+            }
+            case LOAN_REPAID, STABLECOIN_TRANSFER -> invalidate(lendingPool, POOL_LIQUIDITY);
+            default -> {
+            }
+        }
+    }
+
+    public void invalidate(Contract contract, String function) {
+        cache.invalidate(key(contract.getClass(), function));
+    }
+
+    public Map<String, Map<String, Object>> getStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * The stats keys of every function with a policy.
+     */
+    public static Set<String> functions() {
+        return POLICIES.keySet();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private <T> CompletableFuture<T> read(Contract contract, String function, Object arg, Supplier<RemoteFunctionCall<T>> call) {
+        return read(contract, function, arg, contract, function, call);
+    }
+
+    private <T> CompletableFuture<T> read(Contract contract, String function, Object arg, Contract target,
+                                          String targetFunction, Supplier<RemoteFunctionCall<T>> call) {
+        String key = key(contract.getClass(), function);
+        Policy policy = POLICIES.getOrDefault(key, Policy.TTL);
+        long ttl = policy == Policy.PERMANENT ? ReadThroughCache.PERMANENT : ttlMs;
+        return cache.get(key, arg, ttl, () -> web3Service.getBatchReader().read(target, targetFunction, call.get()));
+    }
+
+    private static String key(Class<?> contract, String function) {
+        return contract.getSimpleName() + "." + function;
+    }
+}
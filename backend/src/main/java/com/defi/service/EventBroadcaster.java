@@ -0,0 +1,150 @@
+package com.defi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes chain events to connected SSE clients, per wallet and per loan.
+ * Every client is served from the single ChainEventStream subscription.
+ */
+@Service
+public class EventBroadcaster implements ChainEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(EventBroadcaster.class);
+
+    @Autowired
+    private ChainEventStream chainEvents;
+
+    @Autowired
+    private LendingIndex lendingIndex;
+
+    @Value("${events.sse.timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${events.sse.heartbeat-ms:20000}")
+    private long heartbeatMs;
+
+    private final Map<String, Set<SseEmitter>> walletSubscribers = new ConcurrentHashMap<>();
+    private final Map<BigInteger, Set<SseEmitter>> loanSubscribers = new ConcurrentHashMap<>();
+
+    // client writes happen here so a slow client never holds up event processing
+    private final ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "sse-broadcaster");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void init() {
+        // registered after LendingIndex, so loan borrowers are already known when events arrive here
+        chainEvents.addListener(this);
+        sender.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        walletSubscribers.values().forEach(set -> set.forEach(SseEmitter::complete));
+        loanSubscribers.values().forEach(set -> set.forEach(SseEmitter::complete));
+    }
+
+    public SseEmitter subscribeWallet(String wallet) {
+        return subscribe(walletSubscribers, wallet.toLowerCase());
+    }
+
+    public SseEmitter subscribeLoan(BigInteger loanId) {
+        return subscribe(loanSubscribers, loanId);
+    }
+
+    @Override
+    public void onEvent(ChainEvent event) {
+        if (event.getType() == ChainEvent.Type.TRANSFER || event.getType() == ChainEvent.Type.STABLECOIN_TRANSFER) {
+            sender.execute(() -> {
+                publish(walletSubscribers.get(event.getFrom()), event);
+                publish(walletSubscribers.get(event.getTo()), event);
+            });
+        } else {
+            String borrower = lendingIndex.getBorrower(event.getLoanId());
+            sender.execute(() -> {
+                publish(loanSubscribers.get(event.getLoanId()), event);
+                if (borrower != null) {
+                    publish(walletSubscribers.get(borrower), event);
+                }
+            });
+        }
+    }
+
+    private <K> SseEmitter subscribe(Map<K, Set<SseEmitter>> subscribers, K key) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        // adding and removing both run inside the map's per-key lock, so a set is never
+        // dropped from the map between another subscriber finding it and adding to it
+        subscribers.compute(key, (k, s) -> {
+            Set<SseEmitter> set = s != null ? s : ConcurrentHashMap.newKeySet();
+            set.add(emitter);
+            return set;
+        });
+
+        Runnable remove = () -> subscribers.computeIfPresent(key, (k, s) -> {
+            s.remove(emitter);
+            return s.isEmpty() ? null : s;
+        });
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    private void publish(Set<SseEmitter> emitters, ChainEvent event) {
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(event.getBlockNumber() + "-" + event.getLogIndex())
+                        .name(event.getType().name())
+                        .data(event, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void heartbeat() {
+        for (Set<SseEmitter> emitters : walletSubscribers.values()) {
+            ping(emitters);
+        }
+        for (Set<SseEmitter> emitters : loanSubscribers.values()) {
+            ping(emitters);
+        }
+    }
+
+    private void ping(Set<SseEmitter> emitters) {
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().comment("ping"));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping disconnected SSE client", e);
+                emitters.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
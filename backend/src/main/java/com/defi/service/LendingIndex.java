@@ -0,0 +1,297 @@
+package com.defi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of token ownership and loan state, kept up to date from
+ * AssetToken Transfer and LendingPool loan events so wallet queries never
+ * touch the node.
+ */
+@Service
+public class LendingIndex implements ChainEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LendingIndex.class);
+
+    private static final String ZERO_ADDRESS = "0x0000000000000000000000000000000000000000";
+
+    @Autowired
+    private web3service web3Service;
+
+    @Autowired
+    private ChainEventStream chainEvents;
+
+    @Autowired
+    private ContractReadCache contractCache;
+
+    private final Map<String, Set<BigInteger>> walletTokens = new ConcurrentHashMap<>();
+    private final Map<BigInteger, String> tokenOwners = new ConcurrentHashMap<>();
+    private final Map<BigInteger, String> tokenURIs = new ConcurrentHashMap<>();
+    // last wallet that handed the token to the pool, i.e. the borrower while it is collateral
+    private final Map<BigInteger, String> depositors = new ConcurrentHashMap<>();
+    private final Map<BigInteger, BigInteger> tokenToLoan = new ConcurrentHashMap<>();
+    private final Map<BigInteger, LoanState> loans = new ConcurrentHashMap<>();
+    // active loan ids by borrower, so a wallet's loans are found without scanning every loan
+    private final Map<String, Set<BigInteger>> walletLoans = new ConcurrentHashMap<>();
+
+    private String lendingPoolAddress;
+
+    @PostConstruct
+    public void init() {
+        lendingPoolAddress = web3Service.getLendingPool().getContractAddress().toLowerCase();
+        chainEvents.addListener(this);
+    }
+
+    // -------------------------- Event handlers --------------------------
+
+    @Override
+    public void onEvent(ChainEvent event) {
+        switch (event.getType()) {
+            case TRANSFER -> onTransfer(event.getFrom(), event.getTo(), event.getTokenId());
+            case LOAN_CREATED -> onLoanCreated(event.getLoanId(), event.getTokenId(), event.getAmount());
+            case LOAN_REPAID -> onLoanClosed(event.getLoanId(), "REPAID");
+            case LOAN_LIQUIDATED -> onLoanClosed(event.getLoanId(), "LIQUIDATED");
+        }
+    }
+
+    synchronized void onTransfer(String from, String to, BigInteger tokenId) {
+        String fromKey = from.toLowerCase();
+        String toKey = to.toLowerCase();
+
+        Set<BigInteger> previous = walletTokens.get(fromKey);
+        if (previous != null) {
+            previous.remove(tokenId);
+        }
+        walletTokens.computeIfAbsent(toKey, k -> ConcurrentHashMap.newKeySet()).add(tokenId);
+        tokenOwners.put(tokenId, toKey);
+
+        if (toKey.equals(lendingPoolAddress)) {
+            depositors.put(tokenId, fromKey);
+            // LoanCreated may have been handled before the collateral Transfer
+            BigInteger loanId = tokenToLoan.get(tokenId);
+            if (loanId != null) {
+                walletLoans.computeIfAbsent(fromKey, k -> ConcurrentHashMap.newKeySet()).add(loanId);
+            }
+        }
+        if (fromKey.equals(ZERO_ADDRESS)) {
+            // tokenURI is fixed at mint, so one lookup per token is enough
+            contractCache.tokenURI(tokenId)
+                    .thenAccept(uri -> tokenURIs.put(tokenId, uri))
+                    .exceptionally(e -> {
+                        log.warn("Could not load tokenURI for token {}", tokenId, e);
+                        return null;
+                    });
+        }
+    }
+
+    synchronized void onLoanCreated(BigInteger loanId, BigInteger tokenId, BigInteger amount) {
+        LoanState loan = loans.computeIfAbsent(loanId, LoanState::new);
+        loan.tokenId = tokenId;
+        loan.amount = amount;
+        if (loan.status == null) {
+            loan.status = "ACTIVE";
+            tokenToLoan.put(tokenId, loanId);
+            addWalletLoan(loan);
+        }
+
+        // interestDue and startTime are not part of the event
+        web3Service.readLoan(loanId)
+                .thenAccept(tuple -> {
+                    loan.startTime = tuple.component4();
+                    loan.interestDue = tuple.component5();
+                })
+                .exceptionally(e -> {
+                    log.warn("Could not load loan {}", loanId, e);
+                    return null;
+                });
+    }
+
+    synchronized void onLoanClosed(BigInteger loanId, String status) {
+        // a closed loan never reopens, so this is safe even if LoanCreated arrives later
+        LoanState loan = loans.computeIfAbsent(loanId, LoanState::new);
+        loan.status = status;
+        if (loan.tokenId != null) {
+            tokenToLoan.remove(loan.tokenId, loanId);
+            String borrower = depositors.get(loan.tokenId);
+            if (borrower != null) {
+                Set<BigInteger> active = walletLoans.get(borrower);
+                if (active != null) {
+                    active.remove(loanId);
+                }
+            }
+        }
+    }
+
+    private void addWalletLoan(LoanState loan) {
+        String borrower = depositors.get(loan.tokenId);
+        if (borrower != null) {
+            walletLoans.computeIfAbsent(borrower, k -> ConcurrentHashMap.newKeySet()).add(loan.loanId);
+        }
+    }
+
+    // -------------------------- Checkpoints --------------------------
+
+    synchronized void writeCheckpoint(DataOutput out) throws IOException {
+        out.writeInt(tokenOwners.size());
+        for (Map.Entry<BigInteger, String> token : tokenOwners.entrySet()) {
+            BigInteger tokenId = token.getKey();
+            ChainStateStore.writeBigInteger(out, tokenId);
+            ChainStateStore.writeString(out, token.getValue());
+            ChainStateStore.writeString(out, tokenURIs.get(tokenId));
+            ChainStateStore.writeString(out, depositors.get(tokenId));
+        }
+        out.writeInt(loans.size());
+        for (LoanState loan : loans.values()) {
+            ChainStateStore.writeBigInteger(out, loan.loanId);
+            ChainStateStore.writeBigInteger(out, loan.tokenId);
+            ChainStateStore.writeBigInteger(out, loan.amount);
+            ChainStateStore.writeBigInteger(out, loan.startTime);
+            ChainStateStore.writeBigInteger(out, loan.interestDue);
+            ChainStateStore.writeString(out, loan.status);
+        }
+    }
+
+    /**
+     * Loads a checkpoint written by writeCheckpoint, before any event has
+     * arrived. tokenURIs and loan details that had not been read yet are read now.
+     */
+    synchronized void readCheckpoint(ByteBuffer in) {
+        for (int tokens = in.getInt(); tokens > 0; tokens--) {
+            BigInteger tokenId = ChainStateStore.readBigInteger(in);
+            String owner = ChainStateStore.readString(in);
+            String uri = ChainStateStore.readString(in);
+            String depositor = ChainStateStore.readString(in);
+            tokenOwners.put(tokenId, owner);
+            walletTokens.computeIfAbsent(owner, k -> ConcurrentHashMap.newKeySet()).add(tokenId);
+            if (depositor != null) {
+                depositors.put(tokenId, depositor);
+            }
+            if (uri != null) {
+                tokenURIs.put(tokenId, uri);
+            } else {
+                contractCache.tokenURI(tokenId)
+                        .thenAccept(u -> tokenURIs.put(tokenId, u))
+                        .exceptionally(e -> {
+                            log.warn("Could not load tokenURI for token {}", tokenId, e);
+                            return null;
+                        });
+            }
+        }
+        for (int count = in.getInt(); count > 0; count--) {
+            LoanState loan = new LoanState(ChainStateStore.readBigInteger(in));
+            loan.tokenId = ChainStateStore.readBigInteger(in);
+            loan.amount = ChainStateStore.readBigInteger(in);
+            loan.startTime = ChainStateStore.readBigInteger(in);
+            loan.interestDue = ChainStateStore.readBigInteger(in);
+            loan.status = ChainStateStore.readString(in);
+            loans.put(loan.loanId, loan);
+            if ("ACTIVE".equals(loan.status) && loan.tokenId != null) {
+                tokenToLoan.put(loan.tokenId, loan.loanId);
+                addWalletLoan(loan);
+            }
+            if (loan.startTime == null && loan.tokenId != null) {
+                web3Service.readLoan(loan.loanId)
+                        .thenAccept(tuple -> {
+                            loan.startTime = tuple.component4();
+                            loan.interestDue = tuple.component5();
+                        })
+                        .exceptionally(e -> {
+                            log.warn("Could not load loan {}", loan.loanId, e);
+                            return null;
+                        });
+            }
+        }
+    }
+
+    // -------------------------- Queries --------------------------
+
+    public List<BigInteger> getTokensOf(String wallet) {
+        Set<BigInteger> tokens = walletTokens.get(wallet.toLowerCase());
+        if (tokens == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(new TreeSet<>(tokens));
+    }
+
+    public String getTokenURI(BigInteger tokenId) {
+        return tokenURIs.get(tokenId);
+    }
+
+    // active loan the token is collateral for, 0 if none
+    BigInteger getLoanIdForToken(BigInteger tokenId) {
+        return tokenToLoan.getOrDefault(tokenId, BigInteger.ZERO);
+    }
+
+    // wallet that put up the loan's collateral, null if unknown
+    public String getBorrower(BigInteger loanId) {
+        LoanState loan = loans.get(loanId);
+        return loan == null || loan.tokenId == null ? null : depositors.get(loan.tokenId);
+    }
+
+    public List<LoanState> getActiveLoansOf(String wallet) {
+        Set<BigInteger> active = walletLoans.get(wallet.toLowerCase());
+        if (active == null) {
+            return Collections.emptyList();
+        }
+        List<LoanState> result = new ArrayList<>();
+        for (BigInteger loanId : new TreeSet<>(active)) {
+            LoanState loan = loans.get(loanId);
+            if (loan != null && "ACTIVE".equals(loan.status)) {
+                result.add(loan);
+            }
+        }
+        return result;
+    }
+
+    public static class LoanState {
+        private final BigInteger loanId;
+        private volatile BigInteger tokenId;
+        private volatile BigInteger amount;
+        private volatile BigInteger startTime;
+        private volatile BigInteger interestDue;
+        private volatile String status;
+
+        LoanState(BigInteger loanId) {
+            this.loanId = loanId;
+        }
+
+        public BigInteger getLoanId() {
+            return loanId;
+        }
+
+        public BigInteger getTokenId() {
+            return tokenId;
+        }
+
+        public BigInteger getAmount() {
+            return amount;
+        }
+
+        public BigInteger getStartTime() {
+            return startTime;
+        }
+
+        public BigInteger getInterestDue() {
+            return interestDue;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.defi.service;
+
+import com.defi.contracts.LendingPool;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds loans that can be liquidated and sends {@code liquidate} for them.
+ * Each pass is one parallel scan of the LoanBook columns, on a dedicated
+ * fork-join pool, for active loans older than the configured loan term or
+ * whose debt is above the configured percentage of their collateral's
+ * valuation, oldest (soonest expired) first. Nothing is read from the node
+ * per loan.
+ *
+ * <p>LendingPool.sol has no term or threshold of its own, and its liquidate
+ * sends the NFT to the caller without checking either; with every loan taken
+ * out by this backend's wallet, liquidating seizes our own collateral. Off
+ * unless web3.liquidation.enabled is set.
+ */
+@Service
+public class LiquidationScanner implements ChainEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LiquidationScanner.class);
+
+    private static final BigInteger HUNDRED = BigInteger.valueOf(100);
+
+    @Autowired
+    private web3service web3Service;
+
+    @Autowired
+    private ChainEventStream chainEvents;
+
+    @Autowired
+    private LoanBook loanBook;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${web3.liquidation.enabled:false}")
+    private boolean enabled;
+
+    @Value("${web3.liquidation.loan-term-seconds:2592000}")
+    private long loanTermSeconds;
+
+    @Value("${web3.liquidation.threshold-percent:80}")
+    private long thresholdPercent;
+
+    @Value("${web3.liquidation.scan-ms:5000}")
+    private long scanMs;
+
+    @Value("${web3.liquidation.max-per-pass:50}")
+    private int maxPerPass;
+
+    @Value("${web3.liquidation.parallelism:0}")
+    private int parallelism;
+
+    // sent and not yet mined; loans whose liquidation reverted are not tried again
+    private final Set<BigInteger> inFlight = ConcurrentHashMap.newKeySet();
+    private final Set<BigInteger> abandoned = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicBoolean scanQueued = new AtomicBoolean();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "liquidation-scanner");
+        t.setDaemon(true);
+        return t;
+    });
+    private ForkJoinPool checkers;
+    private LendingPool lendingPool;
+
+    @PostConstruct
+    public void init() {
+        lendingPool = web3Service.getLendingPool();
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        checkers = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("liquidation-checker-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+        chainEvents.addListener(this);
+
+        FunctionCounter.builder("web3.liquidation.sent", sent, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("web3.liquidation.failed", failed, LongAdder::sum)
+                .description("Liquidations that failed to send or reverted")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // expiry is a matter of time passing, so scan on a timer as well as on new blocks
+        scheduler.scheduleWithFixedDelay(this::scheduleScan, scanMs, scanMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        checkers.shutdownNow();
+    }
+
+    @Override
+    public void onEvent(ChainEvent event) {
+        if (event.getType() == ChainEvent.Type.LOAN_REPAID || event.getType() == ChainEvent.Type.LOAN_LIQUIDATED) {
+            inFlight.remove(event.getLoanId());
+        }
+    }
+
+    @Override
+    public void onBlockProcessed(long blockNumber) {
+        if (enabled) {
+            scheduleScan();
+        }
+    }
+
+    // -------------------------- Scan --------------------------
+
+    private void scheduleScan() {
+        if (scanQueued.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                scanQueued.set(false);
+                scan();
+            });
+        }
+    }
+
+    private void scan() {
+        if (!loanBook.isReady()) {
+            return;
+        }
+        try {
+            long expiredBefore = System.currentTimeMillis() / 1000 - loanTermSeconds;
+            // debt * 100 > valuation * threshold, for whole-number debts
+            BigInteger debtLimit = valuation().multiply(BigInteger.valueOf(thresholdPercent)).divide(HUNDRED);
+
+            List<BigInteger> due = loanBook.selectActive(checkers, expiredBefore, debtLimit);
+            int sentThisPass = 0;
+            for (int i = 0; i < due.size(); i++) {
+                if (sentThisPass == maxPerPass) {
+                    log.info("{} more loans due for liquidation, left for the next pass", due.size() - i);
+                    break;
+                }
+                BigInteger loanId = due.get(i);
+                if (!abandoned.contains(loanId) && inFlight.add(loanId)) {
+                    liquidate(loanId);
+                    sentThisPass++;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Liquidation scan failed", e);
+        }
+    }
+
+    // the value the oracle endpoints quote for every token
+    private static BigInteger valuation() {
+        return ValuationSigningService.VALUATION_WEI;
+    }
+
+    private void liquidate(BigInteger loanId) {
+        log.info("Liquidating loan {} (token {})", loanId, loanBook.getTokenId(loanId));
+        web3Service.submitAsync(lendingPool, LendingPool.FUNC_LIQUIDATE, lendingPool.liquidate(loanId))
+                .thenCompose(PendingTransaction::getReceipt)
+                .whenComplete((receipt, e) -> {
+                    if (e == null && receipt.isStatusOK()) {
+                        // the LoanLiquidated event closes it in the loan book
+                        sent.increment();
+                        return;
+                    }
+                    failed.increment();
+                    inFlight.remove(loanId);
+                    if (e != null) {
+                        // not sent or not mined: try again on a later pass
+                        log.warn("Liquidation of loan {} failed: {}", loanId, e.getMessage());
+                    } else {
+                        // liquidate only reverts for a loan that is no longer active; let the book catch up
+                        log.warn("Liquidation of loan {} reverted; not retrying it", loanId);
+                        abandoned.add(loanId);
+                        loanBook.refresh(loanId);
+                    }
+                });
+    }
+}
@@ -0,0 +1,486 @@
+package com.defi.service;
+
+import com.defi.util.UInt256;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.tuples.generated.Tuple6;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar mirror of LendingPool's loans. Loan ids are dense, so loan id
+ * minus two is a slot in a handful of primitive arrays; amounts and interest
+ * are uint256 stored as four longs each (see UInt256), about 80 bytes per
+ * loan in total. Filled once from loanIdCounter at startup (through
+ * LendingMulticall when one is configured) and then from loan events, with
+ * one loans(id) read per new loan for the fields its event does not carry.
+ * Pool totals are updated as loans open and close, so getStats costs the
+ * same at a million loans as at ten.
+ */
+@Service
+public class LoanBook implements ChainEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanBook.class);
+
+    // loanIdCounter starts at 1 and is incremented before use
+    private static final long FIRST_LOAN_ID = 2;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte ACTIVE = 1;
+    private static final byte CLOSED = 2;
+
+    @Autowired
+    private web3service web3Service;
+
+    @Autowired
+    private ChainEventStream chainEvents;
+
+    @Autowired
+    private ContractReadCache contractCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${web3.loan-book.initial-capacity:1024}")
+    private int initialCapacity;
+
+    @Value("${web3.loan-book.bootstrap-chunk:500}")
+    private int bootstrapChunk;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // columns, indexed by loanId - FIRST_LOAN_ID; startTime is -1 until the loan has been read
+    private byte[] status;
+    private long[] tokenIds;
+    private long[] startTimes;
+    private long[] amounts;
+    private long[] interest;
+    private int size;
+
+    // totals over active loans, and principal over every loan seen
+    private int activeCount;
+    private int closedCount;
+    private final long[] outstandingPrincipal = new long[UInt256.LIMBS];
+    private final long[] outstandingInterest = new long[UInt256.LIMBS];
+    private final long[] totalBorrowed = new long[UInt256.LIMBS];
+
+    // active loans whose loans(id) read failed, retried on the next block
+    private final Set<BigInteger> unresolved = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean retryQueued = new AtomicBoolean();
+    private volatile boolean ready;
+    private volatile boolean restored;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "loan-book");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void init() {
+        status = new byte[initialCapacity];
+        tokenIds = new long[initialCapacity];
+        startTimes = new long[initialCapacity];
+        amounts = new long[initialCapacity * UInt256.LIMBS];
+        interest = new long[initialCapacity * UInt256.LIMBS];
+        chainEvents.addListener(this);
+
+        Gauge.builder("web3.loans.active", this, LoanBook::getActiveCount)
+                .description("Active loans in the loan book")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker.execute(this::bootstrap);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    // true once every loan that existed at startup has been loaded
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getActiveCount() {
+        lock.readLock().lock();
+        try {
+            return activeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // -------------------------- Queries --------------------------
+
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("activeLoans", activeCount);
+            stats.put("closedLoans", closedCount);
+            stats.put("outstandingPrincipal", UInt256.get(outstandingPrincipal, 0));
+            stats.put("outstandingInterest", UInt256.get(outstandingInterest, 0));
+            stats.put("totalBorrowed", UInt256.get(totalBorrowed, 0));
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Active loans that started at or before startedBefore (epoch seconds) or
+     * whose principal plus interest is above debtLimit, oldest first. The
+     * columns are scanned in parallel on the given pool.
+     */
+    public List<BigInteger> selectActive(ForkJoinPool pool, long startedBefore, BigInteger debtLimit) {
+        long[] limit = new long[UInt256.LIMBS];
+        UInt256.set(limit, 0, debtLimit);
+        lock.readLock().lock();
+        try {
+            int[] slots = pool.submit(() -> IntStream.range(0, size).parallel()
+                    .filter(i -> status[i] == ACTIVE && startTimes[i] >= 0
+                            && (startTimes[i] <= startedBefore
+                            || UInt256.compareSum(amounts, i * UInt256.LIMBS, interest, i * UInt256.LIMBS, limit, 0) > 0))
+                    .boxed()
+                    .sorted(Comparator.comparingLong(i -> startTimes[i]))
+                    .mapToInt(Integer::intValue)
+                    .toArray()).join();
+            List<BigInteger> loanIds = new ArrayList<>(slots.length);
+            for (int slot : slots) {
+                loanIds.add(BigInteger.valueOf(slot + FIRST_LOAN_ID));
+            }
+            return loanIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getTokenId(BigInteger loanId) {
+        lock.readLock().lock();
+        try {
+            int slot = slot(loanId);
+            return slot < size ? tokenIds[slot] : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // -------------------------- Updates --------------------------
+
+    @Override
+    public void onEvent(ChainEvent event) {
+        switch (event.getType()) {
+            case LOAN_CREATED -> onLoanCreated(event.getLoanId(), event.getTokenId(), event.getAmount());
+            case LOAN_REPAID, LOAN_LIQUIDATED -> onLoanClosed(event.getLoanId());
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public void onBlockProcessed(long blockNumber) {
+        if (!unresolved.isEmpty() && retryQueued.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                retryQueued.set(false);
+                for (BigInteger loanId : unresolved) {
+                    refresh(loanId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Re-reads one loan, e.g. after a transaction against it reverted.
+     */
+    public CompletableFuture<Void> refresh(BigInteger loanId) {
+        unresolved.add(loanId);
+        return web3Service.readLoan(loanId).handle((loan, e) -> {
+            if (e != null) {
+                log.debug("Could not read loan {}", loanId, e);
+            } else {
+                unresolved.remove(loanId);
+                apply(loanId, loan);
+            }
+            return null;
+        });
+    }
+
+    private void onLoanCreated(BigInteger loanId, BigInteger tokenId, BigInteger amount) {
+        boolean needsRead;
+        lock.writeLock().lock();
+        try {
+            int slot = ensure(loanId);
+            if (status[slot] == UNKNOWN) {
+                open(slot, tokenId, amount);
+            }
+            needsRead = status[slot] == ACTIVE && startTimes[slot] < 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // startTime and interestDue are not part of the event
+        if (needsRead) {
+            refresh(loanId);
+        }
+    }
+
+    private void onLoanClosed(BigInteger loanId) {
+        lock.writeLock().lock();
+        try {
+            close(ensure(loanId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // a loans(id) result, from the bootstrap or a refresh; loans never reopen, so an inactive one is final
+    private void apply(BigInteger loanId, Tuple6<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, Boolean> loan) {
+        if (loan.component1().signum() == 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int slot = ensure(loanId);
+            if (status[slot] == CLOSED) {
+                return;
+            }
+            if (status[slot] == UNKNOWN) {
+                open(slot, loan.component2(), loan.component3());
+            }
+            if (startTimes[slot] < 0) {
+                startTimes[slot] = loan.component4().longValueExact();
+                UInt256.set(interest, slot * UInt256.LIMBS, loan.component5());
+                UInt256.add(outstandingInterest, 0, interest, slot * UInt256.LIMBS);
+            }
+            if (!loan.component6()) {
+                close(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void open(int slot, BigInteger tokenId, BigInteger amount) {
+        status[slot] = ACTIVE;
+        tokenIds[slot] = tokenId.bitLength() < 64 ? tokenId.longValue() : -1;
+        UInt256.set(amounts, slot * UInt256.LIMBS, amount);
+        UInt256.add(outstandingPrincipal, 0, amounts, slot * UInt256.LIMBS);
+        UInt256.add(totalBorrowed, 0, amounts, slot * UInt256.LIMBS);
+        activeCount++;
+    }
+
+    private void close(int slot) {
+        if (status[slot] == ACTIVE) {
+            UInt256.subtract(outstandingPrincipal, 0, amounts, slot * UInt256.LIMBS);
+            UInt256.subtract(outstandingInterest, 0, interest, slot * UInt256.LIMBS);
+            activeCount--;
+            closedCount++;
+        } else if (status[slot] == UNKNOWN) {
+            closedCount++;
+        }
+        status[slot] = CLOSED;
+    }
+
+    private static int slot(BigInteger loanId) {
+        long slot = loanId.longValueExact() - FIRST_LOAN_ID;
+        if (slot < 0 || slot >= Integer.MAX_VALUE / UInt256.LIMBS) {
+            throw new IllegalArgumentException("Loan id out of range: " + loanId);
+        }
+        return (int) slot;
+    }
+
+    // caller holds the write lock
+    private int ensure(BigInteger loanId) {
+        int slot = slot(loanId);
+        if (slot >= status.length) {
+            int capacity = (int) Math.min(Math.max(slot + 1L, status.length * 2L), Integer.MAX_VALUE / UInt256.LIMBS);
+            status = Arrays.copyOf(status, capacity);
+            tokenIds = Arrays.copyOf(tokenIds, capacity);
+            startTimes = Arrays.copyOf(startTimes, capacity);
+            amounts = Arrays.copyOf(amounts, capacity * UInt256.LIMBS);
+            interest = Arrays.copyOf(interest, capacity * UInt256.LIMBS);
+        }
+        if (slot >= size) {
+            Arrays.fill(startTimes, size, slot + 1, -1);
+            size = slot + 1;
+        }
+        return slot;
+    }
+
+    // -------------------------- Checkpoints --------------------------
+
+    // the columns as they are, so reading them back is a handful of bulk copies
+    void writeCheckpoint(DataOutput out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(size);
+            out.write(status, 0, size);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(tokenIds[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeLong(startTimes[i]);
+            }
+            for (int i = 0; i < size * UInt256.LIMBS; i++) {
+                out.writeLong(amounts[i]);
+            }
+            for (int i = 0; i < size * UInt256.LIMBS; i++) {
+                out.writeLong(interest[i]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads a checkpoint written by writeCheckpoint in place of the startup
+     * read from loanIdCounter; loans after it arrive as events.
+     */
+    void readCheckpoint(ByteBuffer in) {
+        lock.writeLock().lock();
+        try {
+            int count = in.getInt();
+            if (count > 0) {
+                ensure(BigInteger.valueOf(count - 1 + FIRST_LOAN_ID));
+            }
+            in.get(status, 0, count);
+            readLongs(in, tokenIds, count);
+            readLongs(in, startTimes, count);
+            readLongs(in, amounts, count * UInt256.LIMBS);
+            readLongs(in, interest, count * UInt256.LIMBS);
+            for (int slot = 0; slot < count; slot++) {
+                int off = slot * UInt256.LIMBS;
+                if (status[slot] != UNKNOWN) {
+                    UInt256.add(totalBorrowed, 0, amounts, off);
+                }
+                if (status[slot] == CLOSED) {
+                    closedCount++;
+                } else if (status[slot] == ACTIVE) {
+                    activeCount++;
+                    UInt256.add(outstandingPrincipal, 0, amounts, off);
+                    UInt256.add(outstandingInterest, 0, interest, off);
+                    if (startTimes[slot] < 0) {
+                        unresolved.add(BigInteger.valueOf(slot + FIRST_LOAN_ID));
+                    }
+                }
+            }
+            restored = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void readLongs(ByteBuffer in, long[] to, int count) {
+        in.asLongBuffer().get(to, 0, count);
+        in.position(in.position() + count * Long.BYTES);
+    }
+
+    // -------------------------- Bootstrap --------------------------
+
+    /**
+     * Reads every loan up to loanIdCounter once: with a multicall contract as
+     * a few aggregate calls per chunk, otherwise in chunks the batch reader
+     * turns into a few JSON-RPC batches. Loans created after the counter was
+     * read arrive as events.
+     */
+    private void bootstrap() {
+        if (restored) {
+            for (BigInteger loanId : unresolved) {
+                refresh(loanId);
+            }
+            log.info("Loan book restored from checkpoint: {} active loans", getActiveCount());
+            ready = true;
+            return;
+        }
+        try {
+            long counter = contractCache.loanIdCounter().join().longValueExact();
+            if (!web3Service.hasMulticall() || !bootstrapAggregated(counter)) {
+                bootstrapBatched(counter);
+            }
+            log.info("Loan book loaded: {} active of {} loans", getActiveCount(), Math.max(0, counter - FIRST_LOAN_ID + 1));
+        } catch (RuntimeException e) {
+            log.warn("Could not load the loan book from loanIdCounter; tracking events only", e);
+        }
+        ready = true;
+    }
+
+    private void bootstrapBatched(long counter) {
+        List<CompletableFuture<Void>> reads = new ArrayList<>(bootstrapChunk);
+        for (long id = FIRST_LOAN_ID; id <= counter; id++) {
+            reads.add(refresh(BigInteger.valueOf(id)));
+            if (reads.size() == bootstrapChunk) {
+                CompletableFuture.allOf(reads.toArray(CompletableFuture[]::new)).join();
+                reads.clear();
+            }
+        }
+        CompletableFuture.allOf(reads.toArray(CompletableFuture[]::new)).join();
+    }
+
+    // false if the multicall contract could not be used at all; loans it could not read are retried one by one
+    private boolean bootstrapAggregated(long counter) {
+        MulticallReader multicall = web3Service.getMulticallReader();
+        for (long from = FIRST_LOAN_ID; from <= counter; from += bootstrapChunk) {
+            List<BigInteger> loanIds = new ArrayList<>(bootstrapChunk);
+            for (long id = from; id <= Math.min(counter, from + bootstrapChunk - 1); id++) {
+                loanIds.add(BigInteger.valueOf(id));
+            }
+            MulticallReader.Snapshot snapshot;
+            try {
+                snapshot = multicall.readLoans(loanIds);
+            } catch (Exception e) {
+                if (from == FIRST_LOAN_ID) {
+                    log.warn("Multicall read of the loan book failed, reading loans one by one", e);
+                    return false;
+                }
+                log.warn("Multicall read of loans {}-{} failed, reading them one by one", from, from + loanIds.size() - 1, e);
+                loanIds.forEach(this::refresh);
+                continue;
+            }
+            for (int i = 0; i < loanIds.size(); i++) {
+                if (snapshot.succeeded(i)) {
+                    apply(loanIds.get(i), loan(snapshot.values(i)));
+                } else {
+                    refresh(loanIds.get(i));
+                }
+            }
+        }
+        return true;
+    }
+
+    private static Tuple6<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, Boolean> loan(List<Type> values) {
+        return new Tuple6<>((BigInteger) values.get(0).getValue(), (BigInteger) values.get(1).getValue(),
+                (BigInteger) values.get(2).getValue(), (BigInteger) values.get(3).getValue(),
+                (BigInteger) values.get(4).getValue(), (Boolean) values.get(5).getValue());
+    }
+}
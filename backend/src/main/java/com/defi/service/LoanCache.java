@@ -0,0 +1,97 @@
+package com.defi.service;
+
+import com.defi.contracts.LendingPool;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.tuples.generated.Tuple6;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Block-tagged cache of {@code loans(loanId)} and {@code tokenToLoanId(tokenId)}.
+ * Both only change in blocks that carry a LoanCreated, LoanRepaid or
+ * LoanLiquidated event, so once the event stream has caught up with the head
+ * every request in that block is answered from memory.
+ */
+public class LoanCache implements ChainEventListener {
+
+    public static final String LOANS = "LendingPool.loans";
+    public static final String TOKEN_TO_LOAN_ID = "LendingPool.tokenToLoanId";
+
+    private final LendingPool lendingPool;
+    private final BatchReader batchReader;
+    private final BlockHeadTracker blockHeads;
+
+    private final BlockKeyedCache<BigInteger, Tuple6<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, Boolean>> loans;
+    private final BlockKeyedCache<BigInteger, BigInteger> tokenToLoanIds;
+
+    private volatile long processedBlock = -1;
+
+    public LoanCache(LendingPool lendingPool, BatchReader batchReader, BlockHeadTracker blockHeads, int maxEntries) {
+        this.lendingPool = lendingPool;
+        this.batchReader = batchReader;
+        this.blockHeads = blockHeads;
+        this.loans = new BlockKeyedCache<>(maxEntries);
+        this.tokenToLoanIds = new BlockKeyedCache<>(maxEntries);
+    }
+
+    public CompletableFuture<Tuple6<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, Boolean>> readLoan(BigInteger loanId) {
+        long head = blockHeads.getHead();
+        if (head < 0) {
+            return batchReader.call(lendingPool, LendingPool.FUNC_LOANS, lendingPool.loans(loanId)).thenApply(web3service::toLoan);
+        }
+        return loans.get(loanId, head, processedBlock, block ->
+                batchReader.call(lendingPool, LendingPool.FUNC_LOANS, lendingPool.loans(loanId), at(block)).thenApply(web3service::toLoan));
+    }
+
+    public CompletableFuture<BigInteger> readTokenToLoanId(BigInteger tokenId) {
+        long head = blockHeads.getHead();
+        if (head < 0) {
+            return batchReader.read(lendingPool, LendingPool.FUNC_TOKENTOLOANID, lendingPool.tokenToLoanId(tokenId));
+        }
+        return tokenToLoanIds.get(tokenId, head, processedBlock, block ->
+                batchReader.read(lendingPool, LendingPool.FUNC_TOKENTOLOANID,
+                        lendingPool.tokenToLoanId(tokenId), at(block)));
+    }
+
+    @Override
+    public void onEvent(ChainEvent event) {
+        long block = event.getBlockNumber();
+        switch (event.getType()) {
+            case LOAN_CREATED -> {
+                loans.changed(event.getLoanId(), block);
+                tokenToLoanIds.changed(event.getTokenId(), block);
+            }
+            case LOAN_REPAID, LOAN_LIQUIDATED -> {
+                // the event carries no tokenId; take it from the cached tuple if there is one
+                Tuple6<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, Boolean> loan = loans.peek(event.getLoanId());
+                if (loan != null && !loan.component2().equals(BigInteger.ZERO)) {
+                    tokenToLoanIds.changed(loan.component2(), block);
+                } else {
+                    tokenToLoanIds.changedAll(block);
+                }
+                loans.changed(event.getLoanId(), block);
+            }
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public void onBlockProcessed(long blockNumber) {
+        processedBlock = blockNumber;
+    }
+
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        stats.put(LOANS, loans.getStats());
+        stats.put(TOKEN_TO_LOAN_ID, tokenToLoanIds.getStats());
+        return stats;
+    }
+
+    private static DefaultBlockParameter at(long block) {
+        return DefaultBlockParameter.valueOf(BigInteger.valueOf(block));
+    }
+}
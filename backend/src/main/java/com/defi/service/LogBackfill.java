@@ -0,0 +1,217 @@
+package com.defi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * eth_getLogs over a long block range, as chunks fetched a few at a time and
+ * handed back strictly in block order. The chunk size is learned from the
+ * node: a chunk it refuses (too many results, range too large, timed out) is
+ * split in half and retried, a chunk slower than the target halves the size
+ * of the next ones, and fast chunks double it up to maxRange. Fetching runs
+ * at most parallelism chunks ahead of the first block not yet handed back.
+ */
+public class LogBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(LogBackfill.class);
+
+    // Infura's "limit exceeded"; others only say so in the message
+    private static final int LIMIT_EXCEEDED = -32005;
+    private static final String[] LIMIT_MESSAGES = {
+            "more than", "too many", "too large", "limit", "range", "exceed", "timeout", "timed out"
+    };
+
+    public interface FilterFactory {
+        EthFilter filter(long from, long to);
+    }
+
+    public interface Sink {
+
+        /**
+         * Every log of blocks from..to, in order; called on the fetch caller's
+         * thread, chunk after chunk with no gaps.
+         */
+        void accept(long from, long to, List<Log> logs);
+    }
+
+    private final Web3j web3j;
+    private final int parallelism;
+    private final long maxRange;
+    private final long targetMillis;
+    private final ExecutorService fetchers;
+
+    private volatile long range;
+
+    private record Chunk(long from, long to, List<Log> logs, long millis, Exception error) {
+
+        long size() {
+            return to - from + 1;
+        }
+    }
+
+    public LogBackfill(Web3j web3j, int parallelism, long maxRange, long targetMillis) {
+        this.web3j = web3j;
+        this.parallelism = Math.max(1, parallelism);
+        this.maxRange = Math.max(1, maxRange);
+        this.targetMillis = targetMillis;
+        this.range = this.maxRange;
+        AtomicInteger threads = new AtomicInteger();
+        this.fetchers = Executors.newFixedThreadPool(this.parallelism, r -> {
+            Thread t = new Thread(r, "log-backfill-" + threads.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // current chunk size in blocks
+    public long getRange() {
+        return range;
+    }
+
+    public void shutdown() {
+        fetchers.shutdownNow();
+    }
+
+    /**
+     * Fetches from..to and passes it to the sink in order. Stops at the first
+     * chunk that fails for any reason other than its size, or that fails at a
+     * single block; returns the last block handed to the sink (from - 1 if none).
+     */
+    public long fetch(long from, long to, FilterFactory filters, Sink sink) throws InterruptedException {
+        CompletionService<Chunk> done = new ExecutorCompletionService<>(fetchers);
+        Set<Future<Chunk>> running = new HashSet<>();
+        // split halves of refused chunks, fetched before anything new
+        Deque<long[]> retries = new ArrayDeque<>();
+        NavigableMap<Long, Chunk> ready = new TreeMap<>();
+        long next = from;
+        long delivered = from - 1;
+        boolean failed = false;
+        try {
+            while (delivered < to && !failed) {
+                // new chunks stay within parallelism * range blocks of the first undelivered one, so a slow
+                // chunk holds back at most that much fetched history in memory; its retries always go out
+                while (running.size() < parallelism && (!retries.isEmpty()
+                        || (next <= to && next - (delivered + 1) < parallelism * range))) {
+                    long[] chunk = retries.pollFirst();
+                    if (chunk == null) {
+                        chunk = new long[] {next, Math.min(to, next + range - 1)};
+                        next = chunk[1] + 1;
+                    }
+                    long chunkFrom = chunk[0];
+                    long chunkTo = chunk[1];
+                    running.add(done.submit(() -> get(chunkFrom, chunkTo, filters)));
+                }
+
+                Future<Chunk> completed = done.take();
+                running.remove(completed);
+                Chunk chunk = completed.get();
+                if (chunk.error() == null) {
+                    adapt(chunk);
+                    ready.put(chunk.from(), chunk);
+                } else if (isLimit(chunk.error()) && chunk.size() > 1) {
+                    long half = chunk.size() / 2;
+                    range = Math.max(1, Math.min(range, half));
+                    retries.addFirst(new long[] {chunk.from() + half, chunk.to()});
+                    retries.addFirst(new long[] {chunk.from(), chunk.from() + half - 1});
+                    log.debug("eth_getLogs {}-{} refused ({}), splitting; range now {}",
+                            chunk.from(), chunk.to(), chunk.error().getMessage(), range);
+                } else {
+                    // whatever came in before it is still delivered; the caller retries from there
+                    log.warn("eth_getLogs {}-{} failed: {}", chunk.from(), chunk.to(), chunk.error().getMessage());
+                    failed = true;
+                }
+
+                while (!ready.isEmpty() && ready.firstKey() == delivered + 1) {
+                    Chunk first = ready.pollFirstEntry().getValue();
+                    sink.accept(first.from(), first.to(), first.logs());
+                    delivered = first.to();
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("eth_getLogs chunk failed unexpectedly", e.getCause());
+        } finally {
+            for (Future<Chunk> future : running) {
+                future.cancel(true);
+            }
+        }
+        return delivered;
+    }
+
+    private Chunk get(long from, long to, FilterFactory filters) {
+        long start = System.nanoTime();
+        try {
+            EthLog response = web3j.ethGetLogs(filters.filter(from, to)).send();
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            if (response.hasError()) {
+                return new Chunk(from, to, null, millis, new NodeError(response.getError()));
+            }
+            List<Log> logs = new ArrayList<>(response.getLogs().size());
+            for (EthLog.LogResult<?> result : response.getLogs()) {
+                logs.add((Log) result.get());
+            }
+            return new Chunk(from, to, logs, millis, null);
+        } catch (Exception e) {
+            return new Chunk(from, to, null, (System.nanoTime() - start) / 1_000_000, e);
+        }
+    }
+
+    // only the fetch caller's thread changes the range
+    private void adapt(Chunk chunk) {
+        if (chunk.millis() > targetMillis) {
+            range = Math.max(1, Math.min(range, chunk.size() / 2));
+        } else if (chunk.millis() < targetMillis / 2 && chunk.size() >= range && range < maxRange) {
+            range = Math.min(maxRange, range * 2);
+        }
+    }
+
+    private static boolean isLimit(Exception e) {
+        if (e instanceof NodeError error && error.code == LIMIT_EXCEEDED) {
+            return true;
+        }
+        if (e instanceof InterruptedIOException) {
+            // includes SocketTimeoutException: the node took too long over the range
+            return true;
+        }
+        String message = e.getMessage() == null ? "" : e.getMessage().toLowerCase(Locale.ROOT);
+        for (String limit : LIMIT_MESSAGES) {
+            if (message.contains(limit)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class NodeError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int code;
+
+        NodeError(Response.Error error) {
+            super(error.getMessage());
+            this.code = error.getCode();
+        }
+    }
+}
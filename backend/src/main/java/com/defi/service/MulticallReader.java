@@ -0,0 +1,171 @@
+package com.defi.service;
+
+import com.defi.contracts.AssetToken;
+import com.defi.contracts.LendingMulticall;
+import com.defi.contracts.LendingPool;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.DynamicBytes;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.RemoteFunctionCall;
+import org.web3j.tx.Contract;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads many LendingPool/AssetToken views through the LendingMulticall
+ * contract. Large requests are split into several aggregate calls, all
+ * pinned to the block of the first one so the result is a consistent snapshot.
+ */
+public class MulticallReader {
+
+    private final LendingMulticall multicall;
+    private final LendingPool lendingPool;
+    private final AssetToken assetToken;
+    private final BatchReader batchReader;
+    private final int maxCallsPerAggregate;
+
+    public MulticallReader(LendingMulticall multicall, LendingPool lendingPool, AssetToken assetToken,
+                           BatchReader batchReader, int maxCallsPerAggregate) {
+        this.multicall = multicall;
+        this.lendingPool = lendingPool;
+        this.assetToken = assetToken;
+        this.batchReader = batchReader;
+        this.maxCallsPerAggregate = maxCallsPerAggregate;
+    }
+
+    public Snapshot readLoans(List<BigInteger> loanIds) throws Exception {
+        List<Read> reads = new ArrayList<>(loanIds.size());
+        for (BigInteger loanId : loanIds) {
+            reads.add(new Read(lendingPool, lendingPool.loans(loanId)));
+        }
+        return read(reads);
+    }
+
+    public Snapshot readTokenToLoanIds(List<BigInteger> tokenIds) throws Exception {
+        List<Read> reads = new ArrayList<>(tokenIds.size());
+        for (BigInteger tokenId : tokenIds) {
+            reads.add(new Read(lendingPool, lendingPool.tokenToLoanId(tokenId)));
+        }
+        return read(reads);
+    }
+
+    public Snapshot readOwners(List<BigInteger> tokenIds) throws Exception {
+        List<Read> reads = new ArrayList<>(tokenIds.size());
+        for (BigInteger tokenId : tokenIds) {
+            reads.add(new Read(assetToken, assetToken.ownerOf(tokenId)));
+        }
+        return read(reads);
+    }
+
+    public Snapshot readTokenURIs(List<BigInteger> tokenIds) throws Exception {
+        List<Read> reads = new ArrayList<>(tokenIds.size());
+        for (BigInteger tokenId : tokenIds) {
+            reads.add(new Read(assetToken, assetToken.tokenURI(tokenId)));
+        }
+        return read(reads);
+    }
+
+    /**
+     * Executes arbitrary view calls in as few aggregate calls as possible.
+     */
+    public Snapshot read(List<Read> reads) throws Exception {
+        if (reads.isEmpty()) {
+            return new Snapshot(BigInteger.ZERO, Collections.emptyList());
+        }
+
+        List<List<Read>> chunks = new ArrayList<>();
+        for (int i = 0; i < reads.size(); i += maxCallsPerAggregate) {
+            chunks.add(reads.subList(i, Math.min(i + maxCallsPerAggregate, reads.size())));
+        }
+
+        // the first chunk fixes the block, the rest are read at that same block in one batch
+        List<Type> first = web3service.await(aggregate(chunks.get(0), DefaultBlockParameterName.LATEST));
+        BigInteger blockNumber = (BigInteger) first.get(0).getValue();
+        DefaultBlockParameter pinned = DefaultBlockParameter.valueOf(blockNumber);
+
+        List<CompletableFuture<List<Type>>> rest = new ArrayList<>();
+        for (int i = 1; i < chunks.size(); i++) {
+            rest.add(aggregate(chunks.get(i), pinned));
+        }
+
+        List<List<Type>> results = new ArrayList<>(reads.size());
+        decode(chunks.get(0), first, results);
+        for (int i = 1; i < chunks.size(); i++) {
+            decode(chunks.get(i), web3service.await(rest.get(i - 1)), results);
+        }
+        return new Snapshot(blockNumber, results);
+    }
+
+    private CompletableFuture<List<Type>> aggregate(List<Read> chunk, DefaultBlockParameter block) {
+        List<String> targets = new ArrayList<>(chunk.size());
+        List<byte[]> callData = new ArrayList<>(chunk.size());
+        for (Read read : chunk) {
+            targets.add(read.contract.getContractAddress());
+            callData.add(Numeric.hexStringToByteArray(read.call.encodeFunctionCall()));
+        }
+        return batchReader.call(multicall, LendingMulticall.FUNC_AGGREGATE, multicall.aggregate(targets, callData), block);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void decode(List<Read> chunk, List<Type> aggregate, List<List<Type>> into) {
+        List<Bool> success = (List<Bool>) aggregate.get(1).getValue();
+        List<DynamicBytes> returnData = (List<DynamicBytes>) aggregate.get(2).getValue();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (success.get(i).getValue()) {
+                into.add(chunk.get(i).call.decodeFunctionResponse(Numeric.toHexString(returnData.get(i).getValue())));
+            } else {
+                into.add(null);
+            }
+        }
+    }
+
+    public static class Read {
+        private final Contract contract;
+        private final RemoteFunctionCall<?> call;
+
+        public Read(Contract contract, RemoteFunctionCall<?> call) {
+            this.contract = contract;
+            this.call = call;
+        }
+    }
+
+    public static class Snapshot {
+        private final BigInteger blockNumber;
+        private final List<List<Type>> results;
+
+        Snapshot(BigInteger blockNumber, List<List<Type>> results) {
+            this.blockNumber = blockNumber;
+            this.results = results;
+        }
+
+        public BigInteger getBlockNumber() {
+            return blockNumber;
+        }
+
+        public int size() {
+            return results.size();
+        }
+
+        public boolean succeeded(int index) {
+            return results.get(index) != null;
+        }
+
+        // decoded outputs of the call, or null if it reverted
+        public List<Type> values(int index) {
+            return results.get(index);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T value(int index) {
+            List<Type> values = results.get(index);
+            return values == null || values.isEmpty() ? null : (T) values.get(0).getValue();
+        }
+    }
+}
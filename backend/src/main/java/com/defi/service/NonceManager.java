@@ -0,0 +1,109 @@
+package com.defi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.tx.ChainIdLong;
+import org.web3j.tx.RawTransactionManager;
+import org.web3j.tx.response.NoOpProcessor;
+
+import java.io.IOException;
+import java.math.BigInteger;
+
+/**
+ * Transaction manager for the hot wallet that hands out nonces from memory
+ * instead of asking the node before every send. Sends return as soon as the
+ * node accepts the transaction; receipts are followed by the ReceiptTracker.
+ */
+public class NonceManager extends RawTransactionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(NonceManager.class);
+
+    private final Web3j web3j;
+    private final String address;
+
+    // next nonce to hand out, null until first synced from the node
+    private BigInteger nextNonce;
+    // resyncs that found the node somewhere other than where we were
+    private volatile long gaps;
+
+    public NonceManager(Web3j web3j, Credentials credentials) {
+        super(web3j, credentials, ChainIdLong.NONE, new NoOpProcessor(web3j));
+        this.web3j = web3j;
+        this.address = credentials.getAddress();
+    }
+
+    @Override
+    protected synchronized BigInteger getNonce() throws IOException {
+        if (nextNonce == null) {
+            nextNonce = fetchPendingNonce();
+        }
+        return nextNonce;
+    }
+
+    @Override
+    public synchronized EthSendTransaction sendTransaction(BigInteger gasPrice, BigInteger gasLimit, String to,
+                                                          String data, BigInteger value, boolean constructor) throws IOException {
+        return track(() -> super.sendTransaction(gasPrice, gasLimit, to, data, value, constructor));
+    }
+
+    @Override
+    public synchronized EthSendTransaction sendEIP1559Transaction(long chainId, BigInteger maxPriorityFeePerGas,
+                                                                 BigInteger maxFeePerGas, BigInteger gasLimit, String to,
+                                                                 String data, BigInteger value, boolean constructor) throws IOException {
+        return track(() -> super.sendEIP1559Transaction(chainId, maxPriorityFeePerGas, maxFeePerGas, gasLimit, to, data, value, constructor));
+    }
+
+    /**
+     * Re-reads the pending nonce from the node, e.g. after a dropped transaction
+     * left a gap that would otherwise stall everything queued behind it.
+     */
+    public synchronized void resync() throws IOException {
+        BigInteger pending = fetchPendingNonce();
+        if (nextNonce != null && !pending.equals(nextNonce)) {
+            log.warn("Nonce for {} resynced from {} to {}", address, nextNonce, pending);
+            gaps++;
+        }
+        nextNonce = pending;
+    }
+
+    public synchronized BigInteger peekNonce() {
+        return nextNonce;
+    }
+
+    public long getGapCount() {
+        return gaps;
+    }
+
+    private EthSendTransaction track(Send send) throws IOException {
+        EthSendTransaction response;
+        try {
+            response = send.send();
+        } catch (IOException e) {
+            // unknown whether the node took it, so ask again next time
+            nextNonce = null;
+            throw e;
+        }
+
+        if (response.hasError()) {
+            log.warn("Transaction with nonce {} rejected: {}", nextNonce, response.getError().getMessage());
+            nextNonce = null;
+        } else {
+            nextNonce = nextNonce.add(BigInteger.ONE);
+        }
+        return response;
+    }
+
+    private BigInteger fetchPendingNonce() throws IOException {
+        return web3j.ethGetTransactionCount(address, DefaultBlockParameterName.PENDING)
+                .send()
+                .getTransactionCount();
+    }
+
+    private interface Send {
+        EthSendTransaction send() throws IOException;
+    }
+}
@@ -1,24 +1,28 @@
 package com.defi.service;
 
+import com.defi.dto.PriceQuote;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Random;
-
 @Service
 public class OracleService {
 
-    public Map<String, Object> getAssetValuation(String assetName) {
-        Map<String, Object> result = new HashMap<>();
+    @Autowired
+    private PriceEngine priceEngine;
 
+    @Value("${oracle.prices.twap-window:60}")
+    private int twapWindow;
 
-        Random random = new Random();
-        int fakePrice = 10000 + random.nextInt(90000);
+    public boolean isTracked(String assetName) {
+        return priceEngine.isTracked(assetName);
+    }
 
-        result.put("asset", assetName);
-        result.put("price", fakePrice);
+    public PriceQuote getAssetValuation(String assetName) {
+        return priceEngine.quote(assetName, twapWindow);
+    }
 
-        return result;
+    public PriceQuote getAssetValuation(String assetName, int windowTicks) {
+        return priceEngine.quote(assetName, windowTicks);
     }
 }
@@ -0,0 +1,23 @@
+package com.defi.service;
+
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.util.concurrent.CompletableFuture;
+
+public class PendingTransaction {
+    private final String hash;
+    private final CompletableFuture<TransactionReceipt> receipt;
+
+    public PendingTransaction(String hash, CompletableFuture<TransactionReceipt> receipt) {
+        this.hash = hash;
+        this.receipt = receipt;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public CompletableFuture<TransactionReceipt> getReceipt() {
+        return receipt;
+    }
+}
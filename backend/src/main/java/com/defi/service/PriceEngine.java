@@ -0,0 +1,93 @@
+package com.defi.service;
+
+import com.defi.dto.PriceQuote;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a PriceRing per configured asset (oracle.prices.assets), filled from
+ * the PriceSource by one ticker thread. Other names are not tracked.
+ */
+@Service
+public class PriceEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceEngine.class);
+
+    @Autowired
+    private PriceSource priceSource;
+
+    @Value("${oracle.prices.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${oracle.prices.history:4096}")
+    private int history;
+
+    @Value("${oracle.prices.assets:ETH,BTC,DAI}")
+    private String[] assets;
+
+    private final Map<String, PriceRing> rings = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "price-ticker");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void init() {
+        long now = System.currentTimeMillis();
+        for (String asset : assets) {
+            // the first tick is written before the ring is published, so the ticker stays its only writer
+            PriceRing ring = new PriceRing(history);
+            ring.add(now, priceSource.price(asset, now));
+            rings.put(asset, ring);
+        }
+        ticker.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    public boolean isTracked(String asset) {
+        return rings.containsKey(asset);
+    }
+
+    public double spot(String asset) {
+        return ring(asset).spot();
+    }
+
+    public PriceQuote quote(String asset, int windowTicks) {
+        return ring(asset).quote(asset, System.currentTimeMillis(), windowTicks);
+    }
+
+    private PriceRing ring(String asset) {
+        PriceRing ring = rings.get(asset);
+        if (ring == null) {
+            throw new IllegalArgumentException("No price tracked for " + asset);
+        }
+        return ring;
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        rings.forEach((asset, ring) -> {
+            try {
+                ring.add(now, priceSource.price(asset, now));
+            } catch (RuntimeException e) {
+                log.warn("No price for {}", asset, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,114 @@
+package com.defi.service;
+
+import com.defi.dto.PriceQuote;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size history of price ticks for one asset in primitive arrays. Next
+ * to each tick it stores running sums (time-weighted price, log return,
+ * squared log return), so TWAP and volatility over the last n ticks are a
+ * couple of subtractions. One thread writes; readers never lock and retry
+ * instead if a write overlapped their read (seqlock).
+ */
+class PriceRing {
+
+    private final int mask;
+    private final long[] times;
+    private final double[] prices;
+    private final double[] integral;
+    private final double[] returns;
+    private final double[] squaredReturns;
+
+    // odd while a write is in progress
+    private final AtomicLong sequence = new AtomicLong();
+    private long count;
+
+    PriceRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.times = new long[size];
+        this.prices = new double[size];
+        this.integral = new double[size];
+        this.returns = new double[size];
+        this.squaredReturns = new double[size];
+    }
+
+    // single writer only
+    void add(long timeMillis, double price) {
+        long seq = sequence.get();
+        sequence.setOpaque(seq + 1);
+        VarHandle.storeStoreFence();
+
+        int i = (int) (count & mask);
+        if (count == 0) {
+            integral[i] = 0;
+            returns[i] = 0;
+            squaredReturns[i] = 0;
+        } else {
+            int p = (int) ((count - 1) & mask);
+            double r = Math.log(price / prices[p]);
+            integral[i] = integral[p] + prices[p] * (timeMillis - times[p]);
+            returns[i] = returns[p] + r;
+            squaredReturns[i] = squaredReturns[p] + r * r;
+        }
+        times[i] = timeMillis;
+        prices[i] = price;
+        count++;
+
+        sequence.setRelease(seq + 2);
+    }
+
+    double spot() {
+        while (true) {
+            long seq = sequence.getAcquire();
+            if ((seq & 1) == 0) {
+                long c = count;
+                double spot = c == 0 ? Double.NaN : prices[(int) ((c - 1) & mask)];
+                VarHandle.loadLoadFence();
+                if (sequence.getAcquire() == seq) {
+                    return spot;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Spot, TWAP and volatility over the last {@code window} ticks (fewer if
+     * the history is shorter), all from the same consistent view.
+     */
+    PriceQuote quote(String asset, long nowMillis, int window) {
+        while (true) {
+            long seq = sequence.getAcquire();
+            if ((seq & 1) == 0) {
+                long c = count;
+                int n = (int) Math.max(0, Math.min(window, Math.min(c - 1, mask)));
+                double spot = Double.NaN;
+                double twap = Double.NaN;
+                double volatility = 0;
+                if (c > 0) {
+                    int last = (int) ((c - 1) & mask);
+                    int first = (int) ((c - 1 - n) & mask);
+                    spot = prices[last];
+
+                    long elapsed = nowMillis - times[first];
+                    double area = integral[last] - integral[first] + spot * Math.max(0, nowMillis - times[last]);
+                    twap = elapsed > 0 ? area / elapsed : spot;
+
+                    if (n >= 2) {
+                        double sum = returns[last] - returns[first];
+                        double sumSquares = squaredReturns[last] - squaredReturns[first];
+                        volatility = Math.sqrt(Math.max(0, (sumSquares - sum * sum / n) / (n - 1)));
+                    }
+                }
+                VarHandle.loadLoadFence();
+                if (sequence.getAcquire() == seq) {
+                    return new PriceQuote(asset, nowMillis, spot, twap, volatility, n);
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.defi.service;
+
+/**
+ * Where PriceEngine gets its ticks from. Called once per asset at startup,
+ * then only from the engine's single ticker thread.
+ */
+public interface PriceSource {
+
+    double price(String asset, long timeMillis);
+}
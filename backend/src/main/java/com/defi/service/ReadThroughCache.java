@@ -0,0 +1,162 @@
+package com.defi.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU of in-flight or completed contract reads, keyed by function
+ * and argument. Concurrent misses for the same key share one load, failed
+ * loads are not cached, and hits/misses/evictions are counted per function.
+ */
+public class ReadThroughCache {
+
+    public static final long PERMANENT = Long.MAX_VALUE;
+
+    private final int maxEntries;
+    private final Map<Key, Entry> entries;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    public ReadThroughCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > ReadThroughCache.this.maxEntries) {
+                    statsFor(eldest.getKey().function).evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> get(String function, Object arg, long ttlMillis, Supplier<CompletableFuture<T>> loader) {
+        Key key = new Key(function, arg);
+        Stats counters = statsFor(function);
+        long now = System.currentTimeMillis();
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                counters.hits.increment();
+                return (CompletableFuture<T>) entry.value;
+            }
+            counters.misses.increment();
+            entry = new Entry(new CompletableFuture<>(),
+                    ttlMillis == PERMANENT ? PERMANENT : now + ttlMillis);
+            entries.put(key, entry);
+        }
+
+        Entry loading = entry;
+        CompletableFuture<T> load;
+        try {
+            load = loader.get();
+        } catch (RuntimeException e) {
+            // e.g. a call that fails to encode: nothing was started, so waiters get the error now
+            fail(key, loading, e);
+            return (CompletableFuture<T>) loading.value;
+        }
+        load.whenComplete((value, error) -> {
+            if (error != null) {
+                fail(key, loading, error);
+            } else {
+                ((CompletableFuture<T>) loading.value).complete(value);
+            }
+        });
+        return (CompletableFuture<T>) loading.value;
+    }
+
+    private void fail(Key key, Entry loading, Throwable error) {
+        synchronized (entries) {
+            entries.remove(key, loading);
+        }
+        loading.value.completeExceptionally(error);
+    }
+
+    public void invalidate(String function) {
+        synchronized (entries) {
+            Iterator<Key> keys = entries.keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().function.equals(function)) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    public void invalidate(String function, Object arg) {
+        synchronized (entries) {
+            entries.remove(new Key(function, arg));
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        stats.forEach((function, s) -> {
+            long hits = s.hits.sum();
+            long misses = s.misses.sum();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("hits", hits);
+            row.put("misses", misses);
+            row.put("evictions", s.evictions.sum());
+            row.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+            result.put(function, row);
+        });
+        return result;
+    }
+
+    private Stats statsFor(String function) {
+        return stats.computeIfAbsent(function, f -> new Stats());
+    }
+
+    private static final class Key {
+        final String function;
+        final Object arg;
+
+        Key(String function, Object arg) {
+            this.function = function;
+            this.arg = arg;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && function.equals(other.function) && Objects.equals(arg, other.arg);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * function.hashCode() + Objects.hashCode(arg);
+        }
+    }
+
+    private static final class Entry {
+        final CompletableFuture<?> value;
+        final long expiresAt;
+
+        Entry(CompletableFuture<?> value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Stats {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+    }
+}
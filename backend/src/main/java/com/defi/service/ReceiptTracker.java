@@ -0,0 +1,179 @@
+package com.defi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.EthTransaction;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared receipt engine for submitted transactions. Instead of each
+ * transaction polling on its own, every new block triggers one JSON-RPC
+ * batch of eth_getTransactionReceipt for all pending hashes, so receipt
+ * traffic scales with block production rather than with transactions in
+ * flight. Transactions the node no longer knows about are failed and the
+ * nonce manager is resynced so later sends do not queue behind the gap.
+ */
+public class ReceiptTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptTracker.class);
+
+    private final Web3j web3j;
+    private final NonceManager nonceManager;
+    private final int maxBatchSize;
+    private final long stuckAfterMillis;
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean sweepQueued = new AtomicBoolean();
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "receipt-tracker");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ReceiptTracker(Web3j web3j, NonceManager nonceManager, BlockHeadTracker heads,
+                          int maxBatchSize, long stuckAfterMillis, long fallbackMillis) {
+        this.web3j = web3j;
+        this.nonceManager = nonceManager;
+        this.maxBatchSize = maxBatchSize;
+        this.stuckAfterMillis = stuckAfterMillis;
+        heads.addListener(block -> onBlock());
+        // covers a transaction mined in the block seen just before it was tracked, on an otherwise idle chain
+        worker.scheduleWithFixedDelay(this::onBlock, fallbackMillis, fallbackMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<TransactionReceipt> track(String txHash) {
+        return pending.computeIfAbsent(txHash, Pending::new).future;
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    public void shutdown() {
+        worker.shutdownNow();
+        pending.values().forEach(p -> p.future.completeExceptionally(new IllegalStateException("Receipt tracker is shut down")));
+        pending.clear();
+    }
+
+    private void onBlock() {
+        // blocks that arrive while a sweep is already queued are covered by that sweep
+        if (!pending.isEmpty() && sweepQueued.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                sweepQueued.set(false);
+                sweep();
+            });
+        }
+    }
+
+    private void sweep() {
+        List<Pending> all = new ArrayList<>(pending.values());
+        List<Pending> stillPending = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += maxBatchSize) {
+            stillPending.addAll(fetchReceipts(all.subList(i, Math.min(i + maxBatchSize, all.size()))));
+        }
+
+        long now = System.currentTimeMillis();
+        List<Pending> stuck = new ArrayList<>();
+        for (Pending tx : stillPending) {
+            if (now - tx.submittedAt > stuckAfterMillis) {
+                stuck.add(tx);
+            }
+        }
+        if (!stuck.isEmpty() && failDropped(stuck)) {
+            try {
+                nonceManager.resync();
+            } catch (Exception e) {
+                log.warn("Nonce resync failed", e);
+            }
+        }
+    }
+
+    // returns the transactions that have no receipt yet
+    private List<Pending> fetchReceipts(List<Pending> txs) {
+        BatchRequest batch = web3j.newBatch();
+        Map<Long, Pending> byId = new HashMap<>();
+        for (Pending tx : txs) {
+            Request<?, EthGetTransactionReceipt> request = web3j.ethGetTransactionReceipt(tx.hash);
+            batch.add(request);
+            byId.put(request.getId(), tx);
+        }
+
+        List<Pending> remaining = new ArrayList<>();
+        try {
+            for (Response<?> response : batch.send().getResponses()) {
+                Pending tx = byId.get(response.getId());
+                Optional<TransactionReceipt> receipt = tx == null || response.hasError()
+                        ? Optional.empty()
+                        : ((EthGetTransactionReceipt) response).getTransactionReceipt();
+                if (receipt.isPresent()) {
+                    pending.remove(tx.hash);
+                    tx.future.complete(receipt.get());
+                } else if (tx != null) {
+                    remaining.add(tx);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Receipt batch of {} failed", txs.size(), e);
+        }
+        return remaining;
+    }
+
+    private boolean failDropped(List<Pending> txs) {
+        BatchRequest batch = web3j.newBatch();
+        Map<Long, Pending> byId = new HashMap<>();
+        for (Pending tx : txs) {
+            Request<?, EthTransaction> request = web3j.ethGetTransactionByHash(tx.hash);
+            batch.add(request);
+            byId.put(request.getId(), tx);
+        }
+
+        boolean anyDropped = false;
+        try {
+            for (Response<?> response : batch.send().getResponses()) {
+                Pending tx = byId.get(response.getId());
+                if (tx != null && !response.hasError() && ((EthTransaction) response).getTransaction().isEmpty()) {
+                    pending.remove(tx.hash);
+                    dropped.incrementAndGet();
+                    tx.future.completeExceptionally(new IllegalStateException("Transaction " + tx.hash + " was dropped by the node"));
+                    anyDropped = true;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Dropped-transaction check failed", e);
+        }
+        return anyDropped;
+    }
+
+    private static class Pending {
+        final String hash;
+        final long submittedAt = System.currentTimeMillis();
+        final CompletableFuture<TransactionReceipt> future = new CompletableFuture<>();
+
+        Pending(String hash) {
+            this.hash = hash;
+        }
+    }
+}
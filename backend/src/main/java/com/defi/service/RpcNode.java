@@ -0,0 +1,95 @@
+package com.defi.service;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One node behind RpcNodePool, with what the pool routes on: an EWMA of
+ * round-trip latency, requests in flight, the last head it reported and
+ * whether it is reachable at all.
+ */
+public class RpcNode extends HttpService {
+
+    // weight of the newest sample in the latency average
+    private static final double ALPHA = 0.2;
+
+    private final String name;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double latencyMillis = -1;
+    private volatile long head = -1;
+    private volatile boolean up = true;
+
+    RpcNode(String url, OkHttpClient client) {
+        super(url, client);
+        HttpUrl parsed = HttpUrl.parse(url);
+        // host and port only, so credentials in the path never end up in logs or metric tags
+        this.name = parsed == null ? url : parsed.host() + ":" + parsed.port();
+    }
+
+    byte[] fetch(String payload) throws IOException {
+        long start = System.nanoTime();
+        inFlight.incrementAndGet();
+        try (InputStream in = performIO(payload)) {
+            byte[] response = in == null ? new byte[0] : in.readAllBytes();
+            sample((System.nanoTime() - start) / 1e6);
+            return response;
+        } catch (IOException e) {
+            up = false;
+            throw e;
+        } catch (RuntimeException e) {
+            // HttpService reports non-2xx responses as ClientConnectionException
+            up = false;
+            throw new IOException(name + ": " + e.getMessage(), e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    void reportHead(long head) {
+        this.head = head;
+        this.up = true;
+    }
+
+    void markDown() {
+        up = false;
+    }
+
+    /**
+     * Expected cost of sending one more request here: average latency,
+     * scaled by the requests already waiting on this node.
+     */
+    double score() {
+        return Math.max(latencyMillis, 0) * (1 + inFlight.get());
+    }
+
+    private void sample(double millis) {
+        double current = latencyMillis;
+        latencyMillis = current < 0 ? millis : current + ALPHA * (millis - current);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getLatencyMillis() {
+        return Math.max(latencyMillis, 0);
+    }
+
+    public long getHead() {
+        return head;
+    }
+
+    public boolean isUp() {
+        return up;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,291 @@
+package com.defi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Service;
+import org.web3j.utils.Numeric;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Web3j transport over one or more nodes. Requests made up only of state
+ * reads (eth_call and friends) go to the in-sync node with the lowest
+ * expected latency, and can be hedged: if the first node has not answered
+ * within web3.rpc.hedge-after-ms the same payload goes to the runner-up and
+ * the first answer wins; at most web3.rpc.hedge-threads reads run in the
+ * background, beyond that they are made directly. Everything else (sends,
+ * nonces, receipts, block numbers, logs) stays on the first node, so the
+ * backend's view of its own transactions never depends on which node a read
+ * happened to reach.
+ * Every round trip is charged to the current RpcUsage.
+ */
+public class RpcNodePool extends Service {
+
+    private static final Logger log = LoggerFactory.getLogger(RpcNodePool.class);
+
+    private static final Set<String> READ_METHODS = Set.of(
+            "eth_call", "eth_getBalance", "eth_getCode", "eth_getStorageAt", "eth_chainId", "net_version");
+    private static final String METHOD = "\"method\":\"";
+    private static final String BLOCK_NUMBER = "{\"jsonrpc\":\"2.0\",\"method\":\"eth_blockNumber\",\"params\":[],\"id\":0}";
+
+    private final List<RpcNode> nodes;
+    private final RpcNode writer;
+    private final long hedgeAfterMillis;
+    private final long maxLagBlocks;
+
+    private final LongAdder hedges = new LongAdder();
+    private final ExecutorService hedgers;
+    private final ScheduledExecutorService health;
+
+    public RpcNodePool(List<String> urls, OkHttpClient client, long hedgeAfterMillis, long maxLagBlocks, long healthMillis,
+                       int hedgeThreads) {
+        super(false);
+        this.nodes = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            nodes.add(new RpcNode(url, client));
+        }
+        this.writer = nodes.get(0);
+        this.hedgeAfterMillis = hedgeAfterMillis;
+        this.maxLagBlocks = maxLagBlocks;
+
+        if (nodes.size() > 1) {
+            AtomicInteger threads = new AtomicInteger();
+            // no queue: once every thread is busy a read is made on the caller's thread instead
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(hedgeThreads, hedgeThreads, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), r -> {
+                        Thread t = new Thread(r, "rpc-read-" + threads.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            hedgers = pool;
+            health = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "rpc-health");
+                t.setDaemon(true);
+                return t;
+            });
+            health.scheduleWithFixedDelay(this::checkHealth, 0, healthMillis, TimeUnit.MILLISECONDS);
+        } else {
+            hedgers = null;
+            health = null;
+        }
+        log.info("RPC pool: writes to {}, reads across {}", writer.getName(), nodes.stream().map(RpcNode::getName).toList());
+    }
+
+    /**
+     * Pooled client shared by every node. Calls are synchronous, so the
+     * connection pool rather than the dispatcher bounds concurrency.
+     */
+    public static OkHttpClient httpClient(long connectTimeoutMillis, long readTimeoutMillis, int maxIdleConnections,
+                                          long keepAliveMillis) {
+        return new OkHttpClient.Builder()
+                .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .writeTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMillis, TimeUnit.MILLISECONDS))
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+
+    @Override
+    protected InputStream performIO(String payload) throws IOException {
+        long start = System.nanoTime();
+        byte[] response = null;
+        try {
+            response = route(payload);
+        } finally {
+            // failed round trips still count against the request
+            RpcUsage.charge(countCalls(payload), payload.length(), response == null ? 0 : response.length,
+                    System.nanoTime() - start);
+        }
+        return new ByteArrayInputStream(response);
+    }
+
+    private byte[] route(String payload) throws IOException {
+        if (nodes.size() == 1 || !isRead(payload)) {
+            return writer.fetch(payload);
+        }
+        List<RpcNode> ranked = ranked();
+        if (ranked.isEmpty()) {
+            return writer.fetch(payload);
+        }
+        if (hedgeAfterMillis > 0 && ranked.size() > 1) {
+            return hedged(ranked.get(0), ranked.get(1), payload);
+        }
+
+        RpcNode best = ranked.get(0);
+        try {
+            return best.fetch(payload);
+        } catch (IOException e) {
+            if (best == writer) {
+                throw e;
+            }
+            log.warn("Read from {} failed, retrying on {}: {}", best.getName(), writer.getName(), e.getMessage());
+            return writer.fetch(payload);
+        }
+    }
+
+    private byte[] hedged(RpcNode first, RpcNode second, String payload) throws IOException {
+        CompletableFuture<byte[]> primary;
+        try {
+            primary = fetchAsync(first, payload);
+        } catch (RejectedExecutionException e) {
+            return first.fetch(payload);
+        }
+        try {
+            return primary.get(hedgeAfterMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // slow: race the runner-up below
+        } catch (ExecutionException e) {
+            return second.fetch(payload);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for " + first.getName(), e);
+        }
+
+        CompletableFuture<byte[]> backup;
+        try {
+            backup = fetchAsync(second, payload);
+        } catch (RejectedExecutionException e) {
+            // saturated: no hedge, just wait for the first node
+            return await(primary, first.getName());
+        }
+        hedges.increment();
+        CompletableFuture<byte[]> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<byte[]> attempt : List.of(primary, backup)) {
+            attempt.whenComplete((response, e) -> {
+                if (e == null) {
+                    winner.complete(response);
+                } else if (failures.incrementAndGet() == 2) {
+                    winner.completeExceptionally(e);
+                }
+            });
+        }
+        // the loser is left to finish; its latency still feeds that node's average
+        return await(winner, "a hedged read");
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> read, String what) throws IOException {
+        try {
+            return read.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException c ? c.getCause() : e.getCause();
+            throw cause instanceof IOException io ? io : new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for " + what, e);
+        }
+    }
+
+    private CompletableFuture<byte[]> fetchAsync(RpcNode node, String payload) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return node.fetch(payload);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, hedgers);
+    }
+
+    // reachable nodes within maxLagBlocks of the best head, cheapest first
+    private List<RpcNode> ranked() {
+        long best = -1;
+        for (RpcNode node : nodes) {
+            if (node.isUp()) {
+                best = Math.max(best, node.getHead());
+            }
+        }
+        List<RpcNode> ranked = new ArrayList<>(nodes.size());
+        for (RpcNode node : nodes) {
+            if (node.isUp() && node.getHead() >= best - maxLagBlocks) {
+                ranked.add(node);
+            }
+        }
+        ranked.sort(Comparator.comparingDouble(RpcNode::score));
+        return ranked;
+    }
+
+    private void checkHealth() {
+        for (RpcNode node : nodes) {
+            try {
+                JsonNode response = objectMapper.readTree(node.fetch(BLOCK_NUMBER));
+                if (response.hasNonNull("result")) {
+                    node.reportHead(Numeric.decodeQuantity(response.get("result").asText()).longValueExact());
+                } else {
+                    node.markDown();
+                }
+            } catch (Exception e) {
+                if (node.isUp()) {
+                    log.warn("RPC node {} is unreachable: {}", node.getName(), e.getMessage());
+                }
+                node.markDown();
+            }
+        }
+    }
+
+    private static boolean isRead(String payload) {
+        int found = 0;
+        for (int i = payload.indexOf(METHOD); i >= 0; i = payload.indexOf(METHOD, i + METHOD.length())) {
+            int start = i + METHOD.length();
+            int end = payload.indexOf('"', start);
+            if (end < 0 || !READ_METHODS.contains(payload.substring(start, end))) {
+                return false;
+            }
+            found++;
+        }
+        return found > 0;
+    }
+
+    private static int countCalls(String payload) {
+        if (payload.isEmpty() || payload.charAt(0) != '[') {
+            return 1;
+        }
+        int count = 0;
+        for (int i = payload.indexOf(METHOD); i >= 0; i = payload.indexOf(METHOD, i + METHOD.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    public List<RpcNode> getNodes() {
+        return nodes;
+    }
+
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (health != null) {
+            health.shutdownNow();
+            hedgers.shutdownNow();
+        }
+        for (RpcNode node : nodes) {
+            node.close();
+        }
+    }
+}
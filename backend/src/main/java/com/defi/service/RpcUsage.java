@@ -0,0 +1,100 @@
+package com.defi.service;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JSON-RPC calls, bytes and node time used on behalf of one HTTP request.
+ * The usage is attached to the current thread while work for the request
+ * runs; BatchReader and the submitter carry it across to their own threads,
+ * and RpcNodePool charges every node round trip to it. A JSON-RPC
+ * batch shared by several requests is split between them by call count.
+ */
+public class RpcUsage {
+
+    private static final ThreadLocal<RpcUsage> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Map<RpcUsage, Integer>> SHARES = new ThreadLocal<>();
+
+    private final long startedAt = System.nanoTime();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    public static RpcUsage current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes usage current on this thread and returns the one it replaces,
+     * to be restored with another attach once the work is done.
+     */
+    public static RpcUsage attach(RpcUsage usage) {
+        RpcUsage previous = CURRENT.get();
+        if (usage == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(usage);
+        }
+        return previous;
+    }
+
+    /**
+     * Splits the round trips made on this thread until endBatch between the
+     * given usages, in proportion to the calls each has in the batch.
+     */
+    public static void beginBatch(Map<RpcUsage, Integer> callsByUsage) {
+        SHARES.set(callsByUsage);
+    }
+
+    public static void endBatch() {
+        SHARES.remove();
+    }
+
+    static void charge(int calls, long sent, long received, long nanos) {
+        Map<RpcUsage, Integer> shares = SHARES.get();
+        if (shares == null) {
+            RpcUsage usage = CURRENT.get();
+            if (usage != null) {
+                usage.add(calls, sent, received, nanos);
+            }
+            return;
+        }
+
+        int total = 0;
+        for (int share : shares.values()) {
+            total += share;
+        }
+        for (Map.Entry<RpcUsage, Integer> entry : shares.entrySet()) {
+            int share = entry.getValue();
+            entry.getKey().add(share, sent * share / total, received * share / total, nanos * share / total);
+        }
+    }
+
+    private void add(int calls, long sent, long received, long nanos) {
+        this.calls.add(calls);
+        this.bytesSent.add(sent);
+        this.bytesReceived.add(received);
+        this.nanos.add(nanos);
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    public long getRpcMillis() {
+        return nanos.sum() / 1_000_000;
+    }
+
+    public long getElapsedMillis() {
+        return (System.nanoTime() - startedAt) / 1_000_000;
+    }
+}
@@ -0,0 +1,49 @@
+package com.defi.service;
+
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local stand-in for a price feed: a geometric random walk per asset, seeded
+ * from the asset name, so every run produces the same price path. Registered
+ * by PriceSourceConfig when no other PriceSource bean is defined.
+ */
+public class SimulatedPriceSource implements PriceSource {
+
+    @Value("${oracle.prices.seed:42}")
+    private long seed;
+
+    // standard deviation of the log return per tick
+    @Value("${oracle.prices.sim.volatility:0.002}")
+    private double volatility;
+
+    private final Map<String, Walk> walks = new ConcurrentHashMap<>();
+
+    @Override
+    public double price(String asset, long timeMillis) {
+        return walks.computeIfAbsent(asset, a -> new Walk(new SplittableRandom(seed ^ a.hashCode()))).next(volatility);
+    }
+
+    private static final class Walk {
+        private final SplittableRandom random;
+        private double price;
+        private boolean started;
+
+        Walk(SplittableRandom random) {
+            this.random = random;
+            // same range the old random valuation used
+            this.price = 10000 + random.nextInt(90000);
+        }
+
+        double next(double sigma) {
+            if (started) {
+                price *= Math.exp(sigma * random.nextGaussian() - sigma * sigma / 2);
+            }
+            started = true;
+            return price;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.defi.service;
+
+import com.defi.util.CryptoUtil;
+import com.defi.util.OracleSigner;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Signs batches of valuation quotes on a dedicated fork-join pool and writes
+ * them to the response as they complete, so a dashboard asking for thousands
+ * of tokens starts receiving quotes before the last one is signed.
+ */
+@Service
+public class ValuationSigningService {
+
+    private static final Logger log = LoggerFactory.getLogger(ValuationSigningService.class);
+
+    // fixed quote until valuations come from the price engine
+    public static final BigInteger VALUATION_WEI = new BigInteger("2000000000000000000000"); // 2000 DAI
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    @Value("${oracle.signing.parallelism:0}")
+    private int parallelism;
+
+    private ForkJoinPool pool;
+
+    // exactly one of signature and error is set
+    private record Signed(BigInteger tokenId, String signature, RuntimeException error) {
+    }
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("valuation-signer-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Writes {"oracleAddress":..,"valuationWei":..,"valuations":[{"tokenId":..,"signature":..},..]}
+     * with the valuations in completion order. The ids must be non-null and
+     * non-negative; the controller rejects any other request up front.
+     */
+    public void streamValuations(List<BigInteger> tokenIds, OutputStream out) throws IOException {
+        OracleSigner signer = CryptoUtil.getSigner();
+        BlockingQueue<Signed> done = new LinkedBlockingQueue<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        pool.execute(() -> tokenIds.parallelStream().forEach(tokenId -> {
+            if (cancelled.get()) {
+                return;
+            }
+            try {
+                done.add(new Signed(tokenId, signer.sign(tokenId, VALUATION_WEI), null));
+            } catch (RuntimeException e) {
+                done.add(new Signed(tokenId, null, e));
+            }
+        }));
+
+        try (JsonGenerator json = JSON.createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeStringField("oracleAddress", signer.getAddress());
+            json.writeStringField("valuationWei", VALUATION_WEI.toString());
+            json.writeArrayFieldStart("valuations");
+
+            for (int written = 0; written < tokenIds.size(); written++) {
+                // flush whatever is ready before blocking on the next signature
+                Signed item = done.poll();
+                if (item == null) {
+                    json.flush();
+                    item = done.take();
+                }
+                json.writeStartObject();
+                json.writeStringField("tokenId", item.tokenId().toString());
+                if (item.error() == null) {
+                    json.writeStringField("signature", item.signature());
+                } else {
+                    log.warn("Could not sign valuation for token {}", item.tokenId(), item.error());
+                    json.writeStringField("error", "Signing failed");
+                }
+                json.writeEndObject();
+            }
+
+            json.writeEndArray();
+            json.writeEndObject();
+        } catch (IOException e) {
+            // client went away; stop signing for it
+            cancelled.set(true);
+            throw e;
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while signing valuations", e);
+        }
+    }
+}
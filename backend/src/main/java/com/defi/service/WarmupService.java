@@ -0,0 +1,264 @@
+package com.defi.service;
+
+import com.defi.contracts.AssetToken;
+import com.defi.contracts.LendingPool;
+import com.defi.util.CryptoUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.RemoteFunctionCall;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.protocol.core.methods.response.EthChainId;
+import org.web3j.protocol.core.methods.response.EthGetCode;
+import org.web3j.tx.gas.DefaultGasProvider;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Takes the first-request costs off the hot path before the instance is
+ * reported ready: checks the contracts have code, opens connections to every
+ * node, runs the signing and loans/ownerOf codec paths until the JIT has
+ * compiled them, fills the contract read cache and the newest loans, and
+ * waits for the event stream and loan book to catch up. WarmupHealthIndicator
+ * keeps /actuator/health/readiness out of service until then; a failed
+ * warm-up is retried from the start.
+ */
+@Service
+public class WarmupService {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmupService.class);
+
+    @Autowired
+    private web3service web3Service;
+
+    @Autowired
+    private ContractReadCache contractCache;
+
+    @Autowired
+    private ChainEventStream chainEvents;
+
+    @Autowired
+    private LoanBook loanBook;
+
+    @Value("${web3.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${web3.warmup.connections:8}")
+    private int connections;
+
+    @Value("${web3.warmup.iterations:2000}")
+    private int iterations;
+
+    @Value("${web3.warmup.loans:100}")
+    private int loans;
+
+    @Value("${web3.warmup.retry-ms:5000}")
+    private long retryMs;
+
+    @Value("${web3.warmup.events-timeout-ms:300000}")
+    private long eventsTimeoutMs;
+
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "warmup");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile boolean done;
+    private volatile String step = "pending";
+    private volatile String error;
+    private final Map<String, Long> stepMillis = new LinkedHashMap<>();
+
+    private interface Step {
+        void run() throws Exception;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            done = true;
+            return;
+        }
+        worker.execute(this::warmUp);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    public synchronized Map<String, Object> getDetails() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("step", done ? "done" : step);
+        if (error != null) {
+            details.put("error", error);
+        }
+        details.put("stepMillis", new LinkedHashMap<>(stepMillis));
+        return details;
+    }
+
+    private void warmUp() {
+        long started = System.nanoTime();
+        try {
+            run("contracts", this::checkContracts);
+            run("connections", this::openConnections);
+            run("signing", this::sign);
+            run("codec", this::exerciseCodec);
+            run("caches", this::fillCaches);
+            run("events", this::awaitEvents);
+            error = null;
+            done = true;
+            log.info("Warm-up finished in {} ms: {}", (System.nanoTime() - started) / 1_000_000, stepMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            error = cause.getMessage();
+            log.warn("Warm-up failed at {}, retrying in {} ms: {}", step, retryMs, error);
+            worker.schedule(this::warmUp, retryMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void run(String name, Step body) throws Exception {
+        step = name;
+        long started = System.nanoTime();
+        body.run();
+        synchronized (this) {
+            stepMillis.put(name, (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    // a wrong address or a node without the deployment fails every call later, so fail here instead
+    private void checkContracts() throws IOException {
+        for (String address : List.of(web3Service.getAssetToken().getContractAddress(),
+                web3Service.getLendingPool().getContractAddress(), web3Service.getMockDAI().getContractAddress())) {
+            EthGetCode code = web3Service.getWeb3j().ethGetCode(address, DefaultBlockParameterName.LATEST).send();
+            if (code.hasError()) {
+                throw new IOException("eth_getCode " + address + ": " + code.getError().getMessage());
+            }
+            if (code.getCode() == null || code.getCode().equals("0x")) {
+                throw new IllegalStateException("No contract code at " + address);
+            }
+        }
+    }
+
+    // concurrent requests per node leave that many keep-alive connections in the pool
+    private void openConnections() {
+        List<CompletableFuture<EthChainId>> opened = new ArrayList<>();
+        for (RpcNode node : web3Service.getNodePool().getNodes()) {
+            for (int i = 0; i < connections; i++) {
+                opened.add(new Request<>("eth_chainId", List.of(), node, EthChainId.class).sendAsync());
+            }
+        }
+        CompletableFuture.allOf(opened.toArray(CompletableFuture[]::new)).join();
+    }
+
+    // a transaction signature (offline, never sent) and oracle valuation signatures
+    private void sign() throws IOException {
+        NonceManager nonces = web3Service.getNonceManager();
+        if (nonces.peekNonce() == null) {
+            nonces.resync();
+        }
+        BigInteger nonce = nonces.peekNonce();
+        Credentials credentials = web3Service.getCredentials();
+        LendingPool pool = web3Service.getLendingPool();
+        int signatures = Math.max(1, iterations / 10);
+        for (int i = 0; i < signatures; i++) {
+            RawTransaction tx = RawTransaction.createTransaction(nonce, DefaultGasProvider.GAS_PRICE,
+                    DefaultGasProvider.GAS_LIMIT, pool.getContractAddress(), BigInteger.ZERO,
+                    pool.repay(BigInteger.valueOf(i)).encodeFunctionCall());
+            TransactionEncoder.signMessage(tx, credentials);
+        }
+        // token ids from 1 up are real ones, so these signatures are not wasted in the signer's cache
+        for (int i = 1; i <= signatures; i++) {
+            CryptoUtil.getSigner().sign(BigInteger.valueOf(i), ValuationSigningService.VALUATION_WEI);
+        }
+    }
+
+    // one real loans/ownerOf read each, then their encoding and decoding in a loop
+    private void exerciseCodec() throws IOException {
+        LendingPool pool = web3Service.getLendingPool();
+        AssetToken token = web3Service.getAssetToken();
+        BigInteger loanId = contractCache.loanIdCounter().join().max(BigInteger.TWO);
+        BigInteger tokenId = web3Service.readLoan(loanId).join().component2().max(BigInteger.ONE);
+
+        RemoteFunctionCall<?> loanCall = pool.loans(loanId);
+        RemoteFunctionCall<?> ownerCall = token.ownerOf(tokenId);
+        String loanResult = call(pool.getContractAddress(), loanCall.encodeFunctionCall());
+        String ownerResult = call(token.getContractAddress(), ownerCall.encodeFunctionCall());
+        for (int i = 0; i < iterations; i++) {
+            pool.loans(BigInteger.valueOf(i)).encodeFunctionCall();
+            token.ownerOf(BigInteger.valueOf(i)).encodeFunctionCall();
+            loanCall.decodeFunctionResponse(loanResult);
+            if (ownerResult != null) {
+                ownerCall.decodeFunctionResponse(ownerResult);
+            }
+        }
+    }
+
+    // null if the call reverted, e.g. ownerOf on a chain with no tokens yet
+    private String call(String to, String data) throws IOException {
+        EthCall result = web3Service.getWeb3j().ethCall(
+                Transaction.createEthCallTransaction(web3Service.getCredentials().getAddress(), to, data),
+                DefaultBlockParameterName.LATEST).send();
+        return result.hasError() || result.isReverted() ? null : result.getValue();
+    }
+
+    // a read that fails only leaves its cache entry cold; it must not hold readiness back
+    private void fillCaches() {
+        List<CompletableFuture<?>> reads = new ArrayList<>(List.of(
+                contractCache.assetTokenName(), contractCache.assetTokenSymbol(),
+                contractCache.stablecoin(), contractCache.collateralToken(),
+                contractCache.stablecoinName(), contractCache.stablecoinSymbol(), contractCache.stablecoinDecimals(),
+                contractCache.interestRate(), contractCache.poolLiquidity()));
+        long counter = contractCache.loanIdCounter().join().longValueExact();
+        for (long id = Math.max(2, counter - loans + 1); id <= counter; id++) {
+            reads.add(web3Service.readLoan(BigInteger.valueOf(id)));
+        }
+        CompletableFuture.allOf(reads.stream()
+                .map(read -> read.exceptionally(e -> {
+                    log.warn("Warm-up read failed, left cold: {}", e.getMessage());
+                    return null;
+                }))
+                .toArray(CompletableFuture[]::new)).join();
+    }
+
+    // wallet and loan queries answer from the index, so they are only right once it has caught up
+    private void awaitEvents() throws IOException, InterruptedException, TimeoutException {
+        long head = web3Service.getWeb3j().ethBlockNumber().send().getBlockNumber().longValueExact();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(eventsTimeoutMs);
+        while (!loanBook.isReady() || chainEvents.getProcessedBlock() < head - 1) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new TimeoutException("Event stream at block " + chainEvents.getProcessedBlock() + " of " + head
+                        + (loanBook.isReady() ? "" : ", loan book still loading") + " after " + eventsTimeoutMs + " ms");
+            }
+            Thread.sleep(50);
+        }
+    }
+}
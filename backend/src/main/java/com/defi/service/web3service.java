@@ -1,26 +1,77 @@
 package com.defi.service;
 
 import com.defi.contracts.AssetToken;
+import com.defi.contracts.LendingMulticall;
 import com.defi.contracts.LendingPool;
 import com.defi.contracts.MockDAI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.web3j.abi.datatypes.Type;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.http.HttpService;
+import org.web3j.protocol.core.RemoteFunctionCall;
+import org.web3j.tx.Contract;
 import org.web3j.tx.gas.StaticGasProvider;
 import org.web3j.tx.gas.DefaultGasProvider;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.tuples.generated.Tuple6;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class web3service {
 
+    private static final Logger log = LoggerFactory.getLogger(web3service.class);
+
+    private static final BigInteger MAX_UINT256 = BigInteger.TWO.pow(256).subtract(BigInteger.ONE);
+
     @Value("${web3.node-url}")
     private String nodeUrl;
 
+    // optional: several nodes, the first of which takes all writes; defaults to web3.node-url
+    @Value("${web3.node-urls:}")
+    private String nodeUrls;
+
+    @Value("${web3.rpc.hedge-after-ms:0}")
+    private long hedgeAfterMs;
+
+    @Value("${web3.rpc.hedge-threads:32}")
+    private int hedgeThreads;
+
+    @Value("${web3.rpc.max-lag-blocks:0}")
+    private long maxLagBlocks;
+
+    @Value("${web3.rpc.health-ms:1000}")
+    private long healthMs;
+
+    @Value("${web3.http.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${web3.http.read-timeout-ms:30000}")
+    private long readTimeoutMs;
+
+    @Value("${web3.http.max-idle-connections:32}")
+    private int maxIdleConnections;
+
+    @Value("${web3.http.keep-alive-ms:300000}")
+    private long keepAliveMs;
+
     @Value("${web3.private-key}")
     private String privateKey;
 
@@ -33,6 +84,52 @@ public class web3service {
     @Value("${web3.contracts.mockDai}")
     private String mockDaiAddress;
 
+    @Value("${web3.contracts.multicall:}")
+    private String multicallAddress;
+
+    @Value("${web3.multicall.max-calls:200}")
+    private int multicallMaxCalls;
+
+    @Value("${web3.blocks.poll-ms:500}")
+    private long blockPollMs;
+
+    @Value("${web3.ws-url:}")
+    private String wsUrl;
+
+    @Value("${web3.ws.fallback-poll-ms:10000}")
+    private long wsFallbackPollMs;
+
+    @Value("${web3.ws.max-backoff-ms:30000}")
+    private long wsMaxBackoffMs;
+
+    @Value("${web3.receipts.max-batch:200}")
+    private int receiptMaxBatch;
+
+    @Value("${web3.receipts.fallback-ms:5000}")
+    private long receiptFallbackMs;
+
+    @Value("${web3.receipts.stuck-after-ms:120000}")
+    private long receiptStuckAfterMs;
+
+    @Value("${web3.cache.loans.max-entries:10000}")
+    private int loanCacheMaxEntries;
+
+    @Value("${web3.approvals.standing:false}")
+    private boolean standingApprovals;
+
+    @Value("${web3.batch.max-size:100}")
+    private int batchMaxSize;
+
+    @Value("${web3.batch.linger-ms:2}")
+    private long batchLingerMs;
+
+    @Value("${web3.batch.max-in-flight:4}")
+    private int batchMaxInFlight;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private RpcNodePool nodePool;
     private Web3j web3j;
     private Credentials credentials;
 
@@ -42,9 +139,41 @@ public class web3service {
 
     private StaticGasProvider gasProvider;
 
+    private BlockHeadTracker blockHeads;
+    private ChainSubscriber chainSubscriber;
+    private NonceManager nonceManager;
+    private ReceiptTracker receiptTracker;
+    private final ExecutorService submitter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "tx-submitter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // a standing approval is in flight; reads will not show it until it is mined
+    private final AtomicBoolean nftApprovalSent = new AtomicBoolean();
+    private final AtomicBoolean daiApprovalSent = new AtomicBoolean();
+
+    // without a standing approval: allowance that sent repays will spend once mined
+    private final Object daiApprovals = new Object();
+    private BigInteger daiCommitted = BigInteger.ZERO;
+
+    private ContractMetrics contractMetrics;
+    private BatchReader batchReader;
+    private MulticallReader multicallReader;
+    private LoanCache loanCache;
+
     @PostConstruct
     public void init() {
-        web3j = Web3j.build(new HttpService(nodeUrl));
+        List<String> urls = new ArrayList<>();
+        for (String url : (nodeUrls.isBlank() ? nodeUrl : nodeUrls).split(",")) {
+            if (!url.isBlank()) {
+                urls.add(url.trim());
+            }
+        }
+        nodePool = new RpcNodePool(urls,
+                RpcNodePool.httpClient(connectTimeoutMs, readTimeoutMs, maxIdleConnections, keepAliveMs),
+                hedgeAfterMs, maxLagBlocks, healthMs, hedgeThreads);
+        web3j = Web3j.build(nodePool);
         credentials = Credentials.create(privateKey);
 
         gasProvider = new StaticGasProvider(
@@ -52,58 +181,369 @@ public class web3service {
             DefaultGasProvider.GAS_LIMIT
         );
 
-        assetToken = AssetToken.load(assetTokenAddress, web3j, credentials, gasProvider);
-        lendingPool = LendingPool.load(lendingPoolAddress, web3j, credentials, gasProvider);
-        mockDAI = MockDAI.load(mockDaiAddress, web3j, credentials, gasProvider);
+        // writes share one in-memory nonce sequence and never block on receipts
+        nonceManager = new NonceManager(web3j, credentials);
+        blockHeads = new BlockHeadTracker(web3j, blockPollMs, wsFallbackPollMs);
+        receiptTracker = new ReceiptTracker(web3j, nonceManager, blockHeads, receiptMaxBatch, receiptStuckAfterMs, receiptFallbackMs);
+
+        assetToken = AssetToken.load(assetTokenAddress, web3j, nonceManager, gasProvider);
+        lendingPool = LendingPool.load(lendingPoolAddress, web3j, nonceManager, gasProvider);
+        mockDAI = MockDAI.load(mockDaiAddress, web3j, nonceManager, gasProvider);
+
+        if (!wsUrl.isBlank()) {
+            // started by ChainEventStream once its listeners are in place
+            chainSubscriber = new ChainSubscriber(wsUrl.trim(),
+                    List.of(assetTokenAddress, lendingPoolAddress, mockDaiAddress), wsMaxBackoffMs);
+            Gauge.builder("web3.ws.connected", chainSubscriber, s -> s.isConnected() ? 1 : 0)
+                    .description("Whether head and log subscriptions are up")
+                    .register(meterRegistry);
+            FunctionCounter.builder("web3.ws.reconnects", chainSubscriber, ChainSubscriber::getReconnects)
+                    .register(meterRegistry);
+        }
+
+        contractMetrics = new ContractMetrics(meterRegistry);
+        Gauge.builder("web3.tx.pending", receiptTracker, ReceiptTracker::pendingCount)
+                .description("Transactions sent and waiting for a receipt")
+                .register(meterRegistry);
+        FunctionCounter.builder("web3.tx.dropped", receiptTracker, ReceiptTracker::droppedCount)
+                .description("Transactions the node no longer knew about before they were mined")
+                .register(meterRegistry);
+        for (RpcNode node : nodePool.getNodes()) {
+            Gauge.builder("web3.rpc.node.latency", node, RpcNode::getLatencyMillis)
+                    .description("Moving average of round-trip time to the node, in milliseconds")
+                    .tag("node", node.getName())
+                    .register(meterRegistry);
+            Gauge.builder("web3.rpc.node.head", node, RpcNode::getHead)
+                    .tag("node", node.getName())
+                    .register(meterRegistry);
+        }
+        FunctionCounter.builder("web3.rpc.hedges", nodePool, RpcNodePool::getHedgeCount)
+                .description("Reads also sent to a second node because the first was slow")
+                .register(meterRegistry);
+        FunctionCounter.builder("web3.nonce.gaps", nonceManager, NonceManager::getGapCount)
+                .description("Nonce resyncs that found the node's pending nonce elsewhere than ours")
+                .register(meterRegistry);
+
+        batchReader = new BatchReader(web3j, credentials.getAddress(), batchMaxSize, batchLingerMs, batchMaxInFlight,
+                contractMetrics);
+        loanCache = new LoanCache(lendingPool, batchReader, blockHeads, loanCacheMaxEntries);
+
+        if (!multicallAddress.isBlank()) {
+            LendingMulticall multicall = LendingMulticall.load(multicallAddress, web3j, nonceManager, gasProvider);
+            multicallReader = new MulticallReader(multicall, lendingPool, assetToken, batchReader, multicallMaxCalls);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        submitter.shutdown();
+        batchReader.shutdown();
+        receiptTracker.shutdown();
+        if (chainSubscriber != null) {
+            chainSubscriber.shutdown();
+        }
+        blockHeads.shutdown();
+        web3j.shutdown();
+    }
+
+    public CompletableFuture<String> mintNFT(String to, String tokenURI) {
+        return submitAsync(assetToken, AssetToken.FUNC_MINT, assetToken.mint(to, tokenURI)).thenApply(PendingTransaction::getHash);
     }
 
-    public String mintNFT(String to, String tokenURI) throws Exception {
-        TransactionReceipt tx = assetToken.mint(to, tokenURI).send();
-        return tx.getTransactionHash();
+    public CompletableFuture<String> borrow(BigInteger tokenId, BigInteger amount) {
+        // all pre-flight reads go out in the same batch
+        CompletableFuture<BigInteger> loanIdRead = loanCache.readTokenToLoanId(tokenId);
+        CompletableFuture<String> approvedRead = batchReader.read(assetToken, AssetToken.FUNC_GETAPPROVED, assetToken.getApproved(tokenId));
+        CompletableFuture<Boolean> approvedForAllRead = batchReader.read(assetToken, AssetToken.FUNC_ISAPPROVEDFORALL,
+                assetToken.isApprovedForAll(credentials.getAddress(), lendingPoolAddress));
+
+        return CompletableFuture.allOf(loanIdRead, approvedRead, approvedForAllRead).thenCompose(reads -> {
+            if (!loanIdRead.join().equals(BigInteger.ZERO)) {
+                return CompletableFuture.failedFuture(new Exception("Token is already used as collateral in an active loan."));
+            }
+
+            List<ContractCall> calls = new ArrayList<>(2);
+            AtomicBoolean standing = null;
+            if (!approvedRead.join().equalsIgnoreCase(lendingPoolAddress) && !approvedForAllRead.join()) {
+                if (!standingApprovals) {
+                    calls.add(new ContractCall(assetToken, AssetToken.FUNC_APPROVE, assetToken.approve(lendingPoolAddress, tokenId)));
+                } else if (nftApprovalSent.compareAndSet(false, true)) {
+                    standing = nftApprovalSent;
+                    calls.add(new ContractCall(assetToken, AssetToken.FUNC_SETAPPROVALFORALL,
+                            assetToken.setApprovalForAll(lendingPoolAddress, true)));
+                }
+                // else: setApprovalForAll is already on its way, in an earlier nonce
+            }
+            calls.add(new ContractCall(lendingPool, LendingPool.FUNC_BORROW, lendingPool.borrow(tokenId, amount)));
+            return submitAllAsync(calls, standing);
+        }).thenApply(web3service::lastHash);
+    }
+
+    public CompletableFuture<String> repay(BigInteger loanId) {
+        CompletableFuture<Tuple6<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, Boolean>> loanRead = readLoan(loanId);
+        CompletableFuture<BigInteger> allowanceRead = batchReader.read(mockDAI, MockDAI.FUNC_ALLOWANCE,
+                mockDAI.allowance(credentials.getAddress(), lendingPoolAddress));
+
+        return CompletableFuture.allOf(loanRead, allowanceRead).thenCompose(reads -> {
+            Tuple6<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, Boolean> loan = loanRead.join();
+            if (!loan.component6()) { // isActive
+                return CompletableFuture.failedFuture(new Exception("Loan has already been repaid."));
+            }
+
+            BigInteger allowance = allowanceRead.join();
+            BigInteger totalDue = loan.component3().add(loan.component5());
+
+            if (!standingApprovals) {
+                return repayWithApproval(loanId, allowance, totalDue);
+            }
+            List<ContractCall> calls = new ArrayList<>(2);
+            AtomicBoolean standing = null;
+            if (allowance.compareTo(totalDue) < 0 && daiApprovalSent.compareAndSet(false, true)) {
+                standing = daiApprovalSent;
+                calls.add(new ContractCall(mockDAI, MockDAI.FUNC_APPROVE, mockDAI.approve(lendingPoolAddress, MAX_UINT256)));
+            }
+            calls.add(new ContractCall(lendingPool, LendingPool.FUNC_REPAY, lendingPool.repay(loanId)));
+            return submitAllAsync(calls, standing);
+        }).thenApply(web3service::lastHash);
     }
 
-    public String borrow(BigInteger tokenId, BigInteger amount) throws Exception {
-        BigInteger loanId = lendingPool.tokenToLoanId(tokenId).send();
-        if (!loanId.equals(BigInteger.ZERO)) {
-            throw new Exception("Token is already used as collateral in an active loan.");
+    /**
+     * Repays under an exact approval. The allowance read may predate repays
+     * that are sent but not mined, so those are subtracted first; when that
+     * leaves too little, approve sets the allowance to cover them and this one.
+     * Deciding and queueing under one lock keeps concurrent repays from both
+     * counting on the same allowance.
+     */
+    private CompletableFuture<List<PendingTransaction>> repayWithApproval(BigInteger loanId, BigInteger allowance,
+                                                                          BigInteger totalDue) {
+        CompletableFuture<List<PendingTransaction>> sent;
+        synchronized (daiApprovals) {
+            List<ContractCall> calls = new ArrayList<>(2);
+            if (allowance.subtract(daiCommitted).compareTo(totalDue) < 0) {
+                calls.add(new ContractCall(mockDAI, MockDAI.FUNC_APPROVE,
+                        mockDAI.approve(lendingPoolAddress, daiCommitted.add(totalDue))));
+            }
+            calls.add(new ContractCall(lendingPool, LendingPool.FUNC_REPAY, lendingPool.repay(loanId)));
+            daiCommitted = daiCommitted.add(totalDue);
+            // the submitter runs tasks in queue order, so nonces follow the order decided here
+            sent = submitAllAsync(calls, null);
         }
-    
-        String approved = assetToken.getApproved(tokenId).send();
-        if (!approved.equalsIgnoreCase(lendingPoolAddress)) {
-            assetToken.approve(lendingPoolAddress, tokenId).send();
+        sent.whenComplete((txs, e) -> {
+            if (e != null) {
+                releaseDai(totalDue);
+            } else {
+                txs.get(txs.size() - 1).getReceipt().whenComplete((receipt, failure) -> releaseDai(totalDue));
+            }
+        });
+        return sent;
+    }
+
+    private void releaseDai(BigInteger amount) {
+        synchronized (daiApprovals) {
+            daiCommitted = daiCommitted.subtract(amount);
         }
-    
-        // 3. Call LendingPool.borrow
-        TransactionReceipt tx = lendingPool.borrow(tokenId, amount).send();
-        return tx.getTransactionHash();
     }
-    
 
-    public String repay(BigInteger loanId) throws Exception {
-        var loan = lendingPool.loans(loanId).send();
-    
-        if (!loan.component6()) { // isActive
-            throw new Exception("Loan has already been repaid.");
+    public CompletableFuture<String> getLoanStatus(BigInteger loanId) {
+        return readLoan(loanId).thenApply(loan -> {
+            if (loan.component1().equals(BigInteger.ZERO)) {
+                return "NOT_FOUND";
+            }
+
+            Boolean active = loan.component6(); // isActive
+            return active ? "ACTIVE" : "INACTIVE";
+        });
+    }
+
+    /**
+     * Sends a transaction and returns once the node has accepted it; the
+     * receipt completes separately when it is mined. The send and the wait
+     * for the receipt are timed separately in ContractMetrics, tagged with
+     * function, the wrapper's FUNC_ constant for the call.
+     */
+    public PendingTransaction submit(Contract contract, String function, RemoteFunctionCall<TransactionReceipt> call)
+            throws Exception {
+        String contractName = ContractMetrics.contractName(contract);
+        long start = System.nanoTime();
+
+        String hash;
+        try {
+            hash = call.send().getTransactionHash();
+        } catch (Exception e) {
+            contractMetrics.recordCall(contractName, function, ContractMetrics.WRITE, ContractMetrics.ERROR, System.nanoTime() - start);
+            throw e;
         }
-    
-        BigInteger totalDue = loan.component3().add(loan.component5());
-    
-        mockDAI.approve(lendingPoolAddress, totalDue).send();
-        TransactionReceipt tx = lendingPool.repay(loanId).send();
-        return tx.getTransactionHash();
+        contractMetrics.recordCall(contractName, function, ContractMetrics.WRITE, ContractMetrics.SUCCESS, System.nanoTime() - start);
+
+        CompletableFuture<TransactionReceipt> receipt = receiptTracker.track(hash);
+        receipt.whenComplete((r, e) -> {
+            String outcome;
+            if (e != null) {
+                outcome = ContractMetrics.ERROR;
+                log.warn("Transaction {} failed: {}", hash, e.getMessage());
+            } else if (!r.isStatusOK()) {
+                outcome = ContractMetrics.REVERTED;
+                log.warn("Transaction {} reverted in block {}", hash, r.getBlockNumber());
+            } else {
+                outcome = ContractMetrics.SUCCESS;
+            }
+            contractMetrics.recordMined(contractName, function, outcome, System.nanoTime() - start);
+        });
+        return new PendingTransaction(hash, receipt);
     }
-    
 
-    public String getLoanStatus(BigInteger loanId) throws Exception {
-        var loan = lendingPool.loans(loanId).send();
-    
-        if (loan.component1().equals(BigInteger.ZERO)) {
-            return "NOT_FOUND";
+    /**
+     * Same as submit, but the send itself runs on the submitter thread so no
+     * request thread waits on the node. Sends are serialized by the nonce
+     * manager anyway, so one thread is enough.
+     */
+    public CompletableFuture<PendingTransaction> submitAsync(Contract contract, String function,
+                                                             RemoteFunctionCall<TransactionReceipt> call) {
+        RpcUsage usage = RpcUsage.current();
+        return CompletableFuture.supplyAsync(() -> {
+            RpcUsage previous = RpcUsage.attach(usage);
+            try {
+                return submit(contract, function, call);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                RpcUsage.attach(previous);
+            }
+        }, submitter);
+    }
+
+    /**
+     * Sends the calls back to back in one submitter task, so they get
+     * consecutive nonces and usually land in the same block. Nothing waits
+     * for a receipt in between: the node orders them by nonce, and gas is
+     * static so a later call is never estimated against state an earlier one
+     * has not written yet. Stops at the first call that cannot be sent.
+     *
+     * @param standingFlag set while the standing approval at the head of calls
+     *                     is in flight; cleared once it is mined or has failed
+     */
+    private CompletableFuture<List<PendingTransaction>> submitAllAsync(List<ContractCall> calls, AtomicBoolean standingFlag) {
+        RpcUsage usage = RpcUsage.current();
+        CompletableFuture<List<PendingTransaction>> sent = CompletableFuture.supplyAsync(() -> {
+            RpcUsage previous = RpcUsage.attach(usage);
+            List<PendingTransaction> txs = new ArrayList<>(calls.size());
+            try {
+                for (ContractCall call : calls) {
+                    txs.add(submit(call.contract, call.function, call.call));
+                }
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                RpcUsage.attach(previous);
+            }
+            return txs;
+        }, submitter);
+
+        if (standingFlag != null) {
+            sent.whenComplete((txs, e) -> {
+                if (e != null) {
+                    standingFlag.set(false);
+                } else {
+                    txs.get(0).getReceipt().whenComplete((receipt, failure) -> standingFlag.set(false));
+                }
+            });
         }
-    
-        Boolean active = loan.component6(); // isActive
-        return active ? "ACTIVE" : "INACTIVE";
+        return sent;
     }
+
+    private static String lastHash(List<PendingTransaction> txs) {
+        return txs.get(txs.size() - 1).getHash();
+    }
+
+    private static class ContractCall {
+        final Contract contract;
+        final String function;
+        final RemoteFunctionCall<TransactionReceipt> call;
+
+        ContractCall(Contract contract, String function, RemoteFunctionCall<TransactionReceipt> call) {
+            this.contract = contract;
+            this.function = function;
+            this.call = call;
+        }
+    }
+
+    public CompletableFuture<Tuple6<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, Boolean>> readLoan(BigInteger loanId) {
+        return loanCache.readLoan(loanId);
+    }
+
+    static Tuple6<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, Boolean> toLoan(List<Type> results) {
+        return new Tuple6<>(
+                (BigInteger) results.get(0).getValue(),
+                (BigInteger) results.get(1).getValue(),
+                (BigInteger) results.get(2).getValue(),
+                (BigInteger) results.get(3).getValue(),
+                (BigInteger) results.get(4).getValue(),
+                (Boolean) results.get(5).getValue());
+    }
+
+    static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public ContractMetrics getContractMetrics() {
+        return contractMetrics;
+    }
+
+    public BatchReader getBatchReader() {
+        return batchReader;
+    }
+
+    public boolean hasMulticall() {
+        return multicallReader != null;
+    }
+
+    public MulticallReader getMulticallReader() {
+        if (multicallReader == null) {
+            throw new IllegalStateException("web3.contracts.multicall is not configured");
+        }
+        return multicallReader;
+    }
+
+    public LoanCache getLoanCache() {
+        return loanCache;
+    }
+
+    public RpcNodePool getNodePool() {
+        return nodePool;
+    }
+
+    public Web3j getWeb3j() {
+        return web3j;
+    }
+
+    public BlockHeadTracker getBlockHeads() {
+        return blockHeads;
+    }
+
+    // null unless web3.ws-url is set
+    public ChainSubscriber getChainSubscriber() {
+        return chainSubscriber;
+    }
+
+    public NonceManager getNonceManager() {
+        return nonceManager;
+    }
+
+    public Credentials getCredentials() {
+        return credentials;
+    }
+
+    public ReceiptTracker getReceiptTracker() {
+        return receiptTracker;
+    }
+
     public AssetToken getAssetToken() {
         return assetToken;
     }
@@ -111,4 +551,8 @@ public class web3service {
     public LendingPool getLendingPool() {
         return lendingPool;
     }
+
+    public MockDAI getMockDAI() {
+        return mockDAI;
+    }
 }
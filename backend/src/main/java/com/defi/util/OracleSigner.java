@@ -0,0 +1,143 @@
+package com.defi.util;
+
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Sign;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Signs (tokenId, valuation) quotes the way LendingPool.verifyValuationSignature
+ * expects: keccak256(abi.encodePacked(tokenId, valuation)) under the
+ * "\x19Ethereum Signed Message:\n32" prefix. The address and prefix are
+ * computed once, hashing runs in per-thread buffers, and signatures are
+ * cached since the same key and message always give the same signature.
+ */
+public class OracleSigner {
+
+    private static final byte[] PREFIX = "\u0019Ethereum Signed Message:\n32".getBytes(StandardCharsets.US_ASCII);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ECKeyPair keyPair;
+    private final String address;
+    private final int maxCached;
+    private final Map<Quote, String> signatures = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public OracleSigner(ECKeyPair keyPair, int maxCached) {
+        this.keyPair = keyPair;
+        this.address = "0x" + Keys.getAddress(keyPair);
+        this.maxCached = maxCached;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * Returns the 65-byte r||s||v signature as 0x-prefixed hex.
+     */
+    public String sign(BigInteger tokenId, BigInteger valuationWei) {
+        Quote quote = new Quote(tokenId, valuationWei);
+        String cached = signatures.get(quote);
+        if (cached != null) {
+            return cached;
+        }
+
+        String signature = signUncached(tokenId, valuationWei);
+        if (signatures.size() >= maxCached) {
+            // approximate bound: drop whichever entry the iterator yields first
+            Iterator<Quote> it = signatures.keySet().iterator();
+            if (it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        signatures.put(quote, signature);
+        return signature;
+    }
+
+    String signUncached(BigInteger tokenId, BigInteger valuationWei) {
+        Scratch s = scratch.get();
+
+        writeUint256(tokenId, s.packed, 0);
+        writeUint256(valuationWei, s.packed, 32);
+
+        // messageHash goes straight after the prefix, then the whole thing is hashed again
+        s.keccak.update(s.packed, 0, 64);
+        s.keccak.doFinal(s.prefixed, PREFIX.length);
+        s.keccak.update(s.prefixed, 0, s.prefixed.length);
+        s.keccak.doFinal(s.digest, 0);
+
+        Sign.SignatureData signature = Sign.signMessage(s.digest, keyPair, false);
+
+        char[] out = s.hex;
+        out[0] = '0';
+        out[1] = 'x';
+        int pos = writeHex(signature.getR(), out, 2);
+        pos = writeHex(signature.getS(), out, pos);
+        writeHex(signature.getV(), out, pos);
+        return new String(out);
+    }
+
+    private static void writeUint256(BigInteger value, byte[] dest, int offset) {
+        if (value.signum() < 0 || value.bitLength() > 256) {
+            throw new IllegalArgumentException("Not a uint256: " + value);
+        }
+        byte[] bytes = value.toByteArray();
+        // toByteArray may carry a leading sign byte
+        int start = bytes.length > 32 ? bytes.length - 32 : 0;
+        int length = bytes.length - start;
+        int pad = 32 - length;
+        for (int i = 0; i < pad; i++) {
+            dest[offset + i] = 0;
+        }
+        System.arraycopy(bytes, start, dest, offset + pad, length);
+    }
+
+    private static int writeHex(byte[] bytes, char[] out, int pos) {
+        for (byte b : bytes) {
+            out[pos++] = HEX[(b >> 4) & 0xf];
+            out[pos++] = HEX[b & 0xf];
+        }
+        return pos;
+    }
+
+    private static final class Scratch {
+        final KeccakDigest keccak = new KeccakDigest(256);
+        final byte[] packed = new byte[64];
+        final byte[] prefixed = new byte[PREFIX.length + 32];
+        final byte[] digest = new byte[32];
+        final char[] hex = new char[2 + 65 * 2];
+
+        Scratch() {
+            System.arraycopy(PREFIX, 0, prefixed, 0, PREFIX.length);
+        }
+    }
+
+    private static final class Quote {
+        final BigInteger tokenId;
+        final BigInteger valuationWei;
+
+        Quote(BigInteger tokenId, BigInteger valuationWei) {
+            this.tokenId = tokenId;
+            this.valuationWei = valuationWei;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Quote other && tokenId.equals(other.tokenId) && valuationWei.equals(other.valuationWei);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * tokenId.hashCode() + valuationWei.hashCode();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.defi.util;
+
+import java.math.BigInteger;
+
+/**
+ * Unsigned 256-bit arithmetic on four longs stored side by side in a long[],
+ * least significant limb first, so columns of uint256 values need no
+ * BigInteger per entry. Offsets are in limbs; slot i starts at 4 * i.
+ */
+public final class UInt256 {
+
+    public static final int LIMBS = 4;
+
+    private static final BigInteger MASK = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+    private UInt256() {
+    }
+
+    public static void set(long[] to, int off, BigInteger value) {
+        if (value.signum() < 0 || value.bitLength() > 256) {
+            throw new IllegalArgumentException("Not a uint256: " + value);
+        }
+        for (int i = 0; i < LIMBS; i++) {
+            to[off + i] = value.shiftRight(64 * i).and(MASK).longValue();
+        }
+    }
+
+    public static BigInteger get(long[] from, int off) {
+        BigInteger value = BigInteger.ZERO;
+        for (int i = LIMBS - 1; i >= 0; i--) {
+            value = value.shiftLeft(64).or(new BigInteger(Long.toUnsignedString(from[off + i])));
+        }
+        return value;
+    }
+
+    /**
+     * to += from, wrapping at 2^256; returns the carry out of the top limb.
+     */
+    public static long add(long[] to, int toOff, long[] from, int fromOff) {
+        long carry = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long a = to[toOff + i];
+            long sum = a + from[fromOff + i] + carry;
+            // carry if the sum wrapped, or stayed equal with a carry in and a full limb added
+            carry = Long.compareUnsigned(sum, a) < 0 || (carry == 1 && sum == a) ? 1 : 0;
+            to[toOff + i] = sum;
+        }
+        return carry;
+    }
+
+    /**
+     * to -= from, wrapping at 2^256; returns the borrow out of the top limb.
+     */
+    public static long subtract(long[] to, int toOff, long[] from, int fromOff) {
+        long borrow = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long a = to[toOff + i];
+            long b = from[fromOff + i];
+            long diff = a - b - borrow;
+            borrow = Long.compareUnsigned(a, b) < 0 || (borrow == 1 && a == b) ? 1 : 0;
+            to[toOff + i] = diff;
+        }
+        return borrow;
+    }
+
+    public static int compare(long[] a, int aOff, long[] b, int bOff) {
+        for (int i = LIMBS - 1; i >= 0; i--) {
+            int c = Long.compareUnsigned(a[aOff + i], b[bOff + i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Compares a + b with c without materialising the sum; a + b may exceed 256 bits.
+     */
+    public static int compareSum(long[] a, int aOff, long[] b, int bOff, long[] c, int cOff) {
+        long s0 = a[aOff] + b[bOff];
+        long carry = Long.compareUnsigned(s0, a[aOff]) < 0 ? 1 : 0;
+        long s1 = a[aOff + 1] + b[bOff + 1] + carry;
+        carry = Long.compareUnsigned(s1, a[aOff + 1]) < 0 || (carry == 1 && s1 == a[aOff + 1]) ? 1 : 0;
+        long s2 = a[aOff + 2] + b[bOff + 2] + carry;
+        carry = Long.compareUnsigned(s2, a[aOff + 2]) < 0 || (carry == 1 && s2 == a[aOff + 2]) ? 1 : 0;
+        long s3 = a[aOff + 3] + b[bOff + 3] + carry;
+        carry = Long.compareUnsigned(s3, a[aOff + 3]) < 0 || (carry == 1 && s3 == a[aOff + 3]) ? 1 : 0;
+        if (carry != 0) {
+            return 1;
+        }
+        int cmp = Long.compareUnsigned(s3, c[cOff + 3]);
+        if (cmp == 0) {
+            cmp = Long.compareUnsigned(s2, c[cOff + 2]);
+        }
+        if (cmp == 0) {
+            cmp = Long.compareUnsigned(s1, c[cOff + 1]);
+        }
+        if (cmp == 0) {
+            cmp = Long.compareUnsigned(s0, c[cOff]);
+        }
+        return cmp;
+    }
+}
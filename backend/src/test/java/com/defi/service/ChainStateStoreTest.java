@@ -0,0 +1,191 @@
+package com.defi.service;
+
+import com.defi.contracts.AssetToken;
+import com.defi.contracts.LendingPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.tuples.generated.Tuple6;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChainStateStoreTest {
+
+    private static final String WALLET = "0xf39fd6e51aad88f6f4ce6ab8827279cfffb92266";
+    private static final String POOL = "0x5fbdb2315678afecb367f032d93f642f64180aa3";
+    private static final String TOKEN = "0xe7f1725e7734ce288f8367e1bb143e90bb3f0512";
+    private static final String ZERO = "0x0000000000000000000000000000000000000000";
+
+    @TempDir
+    Path dir;
+
+    private final Map<BigInteger, Tuple6<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, Boolean>> loans =
+            new HashMap<>();
+    private final Map<BigInteger, String> hashes = new HashMap<>();
+    private web3service web3Service;
+    private ContractReadCache contractCache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws IOException {
+        web3Service = mock(web3service.class);
+        AssetToken assetToken = mock(AssetToken.class);
+        when(assetToken.getContractAddress()).thenReturn(TOKEN);
+        LendingPool lendingPool = mock(LendingPool.class);
+        when(lendingPool.getContractAddress()).thenReturn(POOL);
+        when(web3Service.getAssetToken()).thenReturn(assetToken);
+        when(web3Service.getLendingPool()).thenReturn(lendingPool);
+        when(web3Service.readLoan(any())).thenAnswer(call -> CompletableFuture.completedFuture(loans.get(call.getArgument(0))));
+
+        Web3j web3j = mock(Web3j.class);
+        when(web3Service.getWeb3j()).thenReturn(web3j);
+        when(web3j.ethGetBlockByNumber(any(), eq(false))).thenAnswer(call -> {
+            BigInteger number = ((DefaultBlockParameterNumber) call.getArgument(0)).getBlockNumber();
+            EthBlock.Block block = new EthBlock.Block();
+            block.setHash(hashes.getOrDefault(number, "0xhash" + number));
+            EthBlock response = new EthBlock();
+            response.setResult(block);
+            Request<?, EthBlock> request = mock(Request.class);
+            when(request.send()).thenReturn(response);
+            return request;
+        });
+
+        contractCache = mock(ContractReadCache.class);
+        when(contractCache.tokenURI(any())).thenAnswer(call -> CompletableFuture.completedFuture("ipfs://" + call.getArgument(0)));
+    }
+
+    @Test
+    void restoresCheckpointAndReplaysSegment() {
+        Node first = new Node(mock(ChainEventStream.class));
+        first.start();
+
+        // block 10 goes into the checkpoint written when it is processed
+        first.block(10, ChainEvent.transfer(10, 0, "0xa", ZERO, WALLET, BigInteger.ONE),
+                ChainEvent.transfer(10, 1, "0xa", ZERO, WALLET, BigInteger.TWO));
+        // blocks 11 and 12 only into its segment
+        first.block(11, ChainEvent.transfer(11, 0, "0xb", WALLET, POOL, BigInteger.ONE),
+                loanCreated(11, 2, BigInteger.ONE, BigInteger.valueOf(500)));
+        first.block(12, ChainEvent.transfer(12, 0, "0xc", WALLET, POOL, BigInteger.TWO),
+                loanCreated(12, 3, BigInteger.TWO, BigInteger.TWO.pow(100)),
+                ChainEvent.loanRepaid(12, 2, "0xc", BigInteger.valueOf(2), BigInteger.valueOf(525)),
+                ChainEvent.transfer(12, 3, "0xc", POOL, WALLET, BigInteger.ONE));
+        Map<String, Object> stats = first.loanBook.getStats();
+        // block 13 never got its marker, so it is not replayed
+        first.events(loanCreated(13, 4, BigInteger.ONE, BigInteger.TEN));
+        first.store.shutdown();
+
+        ChainEventStream resumed = mock(ChainEventStream.class);
+        Node second = new Node(resumed);
+        second.start();
+
+        verify(resumed).resumeFrom(13);
+        assertEquals(stats, second.loanBook.getStats());
+        assertEquals(List.of(BigInteger.ONE), second.lendingIndex.getTokensOf(WALLET));
+        assertEquals(List.of(BigInteger.valueOf(3)),
+                second.lendingIndex.getActiveLoansOf(WALLET).stream().map(LendingIndex.LoanState::getLoanId).toList());
+        assertEquals("ipfs://1", second.lendingIndex.getTokenURI(BigInteger.ONE));
+        assertEquals(BigInteger.valueOf(3), second.lendingIndex.getLoanIdForToken(BigInteger.TWO));
+        assertEquals(BigInteger.ZERO, second.lendingIndex.getLoanIdForToken(BigInteger.ONE));
+    }
+
+    @Test
+    void discardsStateFromAnotherChainAndKeepsOtherFiles() throws IOException {
+        Node first = new Node(mock(ChainEventStream.class));
+        first.start();
+        first.block(10, ChainEvent.transfer(10, 0, "0xa", ZERO, WALLET, BigInteger.ONE));
+        first.store.shutdown();
+        Path other = Files.writeString(dir.resolve("notes-000000000001.txt"), "not ours");
+
+        // a restarted dev chain: same block numbers, different hashes
+        hashes.put(BigInteger.TEN, "0xother");
+        ChainEventStream resumed = mock(ChainEventStream.class);
+        Node second = new Node(resumed);
+        second.start();
+
+        verify(resumed, never()).resumeFrom(anyLong());
+        assertTrue(second.lendingIndex.getTokensOf(WALLET).isEmpty());
+        assertTrue(Files.exists(other));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertFalse(files.anyMatch(file -> file.getFileName().toString().startsWith("checkpoint-")));
+        }
+    }
+
+    private ChainEvent loanCreated(long block, long loanId, BigInteger tokenId, BigInteger amount) {
+        BigInteger id = BigInteger.valueOf(loanId);
+        loans.put(id, new Tuple6<>(id, tokenId, amount, BigInteger.valueOf(1_700_000_000L + block), amount.divide(BigInteger.TEN), true));
+        return ChainEvent.loanCreated(block, 1, "0x" + block, id, tokenId, amount);
+    }
+
+    // the three listeners of one run, wired as Spring would, with the stream's delivery done by hand
+    private class Node {
+        final LendingIndex lendingIndex = new LendingIndex();
+        final LoanBook loanBook = new LoanBook();
+        final ChainStateStore store = new ChainStateStore();
+
+        Node(ChainEventStream chainEvents) {
+            ReflectionTestUtils.setField(lendingIndex, "web3Service", web3Service);
+            ReflectionTestUtils.setField(lendingIndex, "chainEvents", chainEvents);
+            ReflectionTestUtils.setField(lendingIndex, "contractCache", contractCache);
+            ReflectionTestUtils.setField(loanBook, "web3Service", web3Service);
+            ReflectionTestUtils.setField(loanBook, "chainEvents", chainEvents);
+            ReflectionTestUtils.setField(loanBook, "meterRegistry", new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(loanBook, "initialCapacity", 16);
+            ReflectionTestUtils.setField(store, "web3Service", web3Service);
+            ReflectionTestUtils.setField(store, "chainEvents", chainEvents);
+            ReflectionTestUtils.setField(store, "lendingIndex", lendingIndex);
+            ReflectionTestUtils.setField(store, "loanBook", loanBook);
+            ReflectionTestUtils.setField(store, "dir", dir.toString());
+            ReflectionTestUtils.setField(store, "checkpointMs", 3_600_000L);
+            ReflectionTestUtils.setField(store, "segmentBytes", 1 << 16);
+        }
+
+        void start() {
+            lendingIndex.init();
+            loanBook.init();
+            store.init();
+            store.start();
+            // as if the bootstrap had finished
+            ReflectionTestUtils.setField(loanBook, "ready", true);
+        }
+
+        void events(ChainEvent... events) {
+            for (ChainEvent event : events) {
+                lendingIndex.onEvent(event);
+                loanBook.onEvent(event);
+                store.onEvent(event);
+            }
+        }
+
+        void block(long number, ChainEvent... events) {
+            events(events);
+            lendingIndex.onBlockProcessed(number);
+            loanBook.onBlockProcessed(number);
+            store.onBlockProcessed(number);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.defi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.web3j.tuples.generated.Tuple6;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LoanBookTest {
+
+    // amounts above one limb, so the totals carry between limbs
+    private static final BigInteger BIG = BigInteger.TWO.pow(64).subtract(BigInteger.ONE);
+    private static final BigInteger HUGE = BigInteger.TWO.pow(130).add(BigInteger.valueOf(3));
+
+    private final Map<BigInteger, Tuple6<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, Boolean>> chain =
+            new HashMap<>();
+    private web3service web3Service;
+
+    @BeforeEach
+    void setUp() {
+        web3Service = mock(web3service.class);
+        when(web3Service.readLoan(any())).thenAnswer(call -> CompletableFuture.completedFuture(chain.get(call.getArgument(0))));
+    }
+
+    @Test
+    void totalsFollowLoansOpeningAndClosing() {
+        LoanBook book = loanBook(2);
+        open(book, 2, BIG, BigInteger.valueOf(10));
+        open(book, 3, HUGE, BIG);
+        open(book, 4, BigInteger.ONE, BigInteger.ONE);
+        assertStats(book, 3, 0, BIG.add(HUGE).add(BigInteger.ONE), BigInteger.valueOf(11).add(BIG),
+                BIG.add(HUGE).add(BigInteger.ONE));
+
+        close(book, 3);
+        assertStats(book, 2, 1, BIG.add(BigInteger.ONE), BigInteger.valueOf(11), BIG.add(HUGE).add(BigInteger.ONE));
+
+        // a repeated close changes nothing
+        close(book, 3);
+        assertStats(book, 2, 1, BIG.add(BigInteger.ONE), BigInteger.valueOf(11), BIG.add(HUGE).add(BigInteger.ONE));
+    }
+
+    @Test
+    void checkpointRestoresTheTotals() throws IOException {
+        LoanBook book = loanBook(1024);
+        open(book, 2, BIG, BigInteger.valueOf(10));
+        open(book, 3, HUGE, BIG);
+        open(book, 4, BigInteger.ONE, BigInteger.ONE);
+        close(book, 3);
+
+        LoanBook restored = loanBook(2);
+        restored.readCheckpoint(checkpoint(book));
+        assertEquals(book.getStats(), restored.getStats());
+        assertEquals(book.getTokenId(BigInteger.valueOf(4)), restored.getTokenId(BigInteger.valueOf(4)));
+
+        // the restored book carries on from the checkpoint
+        close(restored, 2);
+        open(restored, 5, HUGE, BigInteger.TWO);
+        assertStats(restored, 2, 2, HUGE.add(BigInteger.ONE), BigInteger.valueOf(3),
+                BIG.add(HUGE).add(HUGE).add(BigInteger.ONE));
+
+        LoanBook again = loanBook(1024);
+        again.readCheckpoint(checkpoint(restored));
+        assertEquals(restored.getStats(), again.getStats());
+    }
+
+    private LoanBook loanBook(int initialCapacity) {
+        LoanBook book = new LoanBook();
+        ReflectionTestUtils.setField(book, "web3Service", web3Service);
+        ReflectionTestUtils.setField(book, "chainEvents", mock(ChainEventStream.class));
+        ReflectionTestUtils.setField(book, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(book, "initialCapacity", initialCapacity);
+        book.init();
+        return book;
+    }
+
+    private void open(LoanBook book, long id, BigInteger amount, BigInteger interestDue) {
+        BigInteger loanId = BigInteger.valueOf(id);
+        BigInteger tokenId = BigInteger.valueOf(id + 100);
+        chain.put(loanId, new Tuple6<>(loanId, tokenId, amount, BigInteger.valueOf(1_700_000_000L + id), interestDue, true));
+        book.onEvent(ChainEvent.loanCreated(id, 0, "0x" + id, loanId, tokenId, amount));
+    }
+
+    private void close(LoanBook book, long id) {
+        BigInteger loanId = BigInteger.valueOf(id);
+        book.onEvent(ChainEvent.loanRepaid(id, 1, "0x" + id, loanId, BigInteger.ZERO));
+    }
+
+    private static ByteBuffer checkpoint(LoanBook book) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        book.writeCheckpoint(new DataOutputStream(bytes));
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static void assertStats(LoanBook book, int active, int closed, BigInteger principal, BigInteger interest,
+                                    BigInteger borrowed) {
+        Map<String, Object> stats = book.getStats();
+        assertEquals(active, stats.get("activeLoans"));
+        assertEquals(closed, stats.get("closedLoans"));
+        assertEquals(principal, stats.get("outstandingPrincipal"));
+        assertEquals(interest, stats.get("outstandingInterest"));
+        assertEquals(borrowed, stats.get("totalBorrowed"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.defi.service;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LogBackfillTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void slowFirstChunkHoldsBackTheRest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong furthest = new AtomicLong(-1);
+        Map<EthFilter, Long> starts = new ConcurrentHashMap<>();
+
+        Web3j web3j = mock(Web3j.class);
+        when(web3j.ethGetLogs(any())).thenAnswer(call -> {
+            long from = starts.get((EthFilter) call.getArgument(0));
+            furthest.accumulateAndGet(from, Math::max);
+            Request<?, EthLog> request = mock(Request.class);
+            when(request.send()).thenAnswer(send -> {
+                if (from == 0) {
+                    release.await();
+                }
+                EthLog response = new EthLog();
+                response.setResult(List.of());
+                return response;
+            });
+            return request;
+        });
+
+        LogBackfill backfill = new LogBackfill(web3j, 2, 10, 60_000);
+        AtomicLong next = new AtomicLong();
+        CompletableFuture<Long> fetched = CompletableFuture.supplyAsync(() -> {
+            try {
+                return backfill.fetch(0, 999, (from, to) -> {
+                    EthFilter filter = new EthFilter(DefaultBlockParameter.valueOf(BigInteger.valueOf(from)),
+                            DefaultBlockParameter.valueOf(BigInteger.valueOf(to)), List.of());
+                    starts.put(filter, from);
+                    return filter;
+                }, (from, to, logs) -> assertEquals(next.getAndSet(to + 1), from));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Thread.sleep(300);
+        // parallelism * range blocks past the stuck chunk at most
+        assertTrue(furthest.get() < 20, "fetched ahead to block " + furthest.get());
+
+        release.countDown();
+        assertEquals(999L, fetched.get(10, TimeUnit.SECONDS));
+        assertEquals(1000L, next.get());
+        backfill.shutdown();
+    }
+}
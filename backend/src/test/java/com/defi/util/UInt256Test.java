@@ -0,0 +1,102 @@
+package com.defi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UInt256Test {
+
+    private static final BigInteger TWO_64 = BigInteger.TWO.pow(64);
+    private static final BigInteger TWO_256 = BigInteger.TWO.pow(256);
+    private static final BigInteger MAX = TWO_256.subtract(BigInteger.ONE);
+
+    @Test
+    void setAndGetRoundTrip() {
+        for (BigInteger value : new BigInteger[] {BigInteger.ZERO, BigInteger.ONE, TWO_64.subtract(BigInteger.ONE),
+                TWO_64, BigInteger.TWO.pow(191).add(BigInteger.valueOf(7)), MAX}) {
+            assertEquals(value, UInt256.get(slot(value), 0));
+        }
+    }
+
+    @Test
+    void setRejectsValuesOutsideUint256() {
+        long[] to = new long[UInt256.LIMBS];
+        assertThrows(IllegalArgumentException.class, () -> UInt256.set(to, 0, TWO_256));
+        assertThrows(IllegalArgumentException.class, () -> UInt256.set(to, 0, BigInteger.ONE.negate()));
+    }
+
+    @Test
+    void addCarriesAcrossLimbs() {
+        assertAdd(TWO_64.subtract(BigInteger.ONE), BigInteger.ONE, TWO_64, 0);
+        assertAdd(BigInteger.TWO.pow(192).subtract(BigInteger.ONE), BigInteger.ONE, BigInteger.TWO.pow(192), 0);
+        // a full limb plus a full limb plus a carry in
+        BigInteger ones128 = BigInteger.TWO.pow(128).subtract(BigInteger.ONE);
+        assertAdd(ones128, ones128, ones128.shiftLeft(1), 0);
+    }
+
+    @Test
+    void addWrapsAtTwoTo256() {
+        assertAdd(MAX, BigInteger.ONE, BigInteger.ZERO, 1);
+        assertAdd(MAX, MAX, MAX.subtract(BigInteger.ONE), 1);
+    }
+
+    @Test
+    void subtractBorrowsAcrossLimbsAndWraps() {
+        assertSubtract(TWO_64, BigInteger.ONE, TWO_64.subtract(BigInteger.ONE), 0);
+        assertSubtract(BigInteger.TWO.pow(192), BigInteger.ONE, BigInteger.TWO.pow(192).subtract(BigInteger.ONE), 0);
+        assertSubtract(BigInteger.ZERO, BigInteger.ONE, MAX, 1);
+    }
+
+    @Test
+    void compareSumHandlesOverflow() {
+        // the sum needs 257 bits, so it is above every uint256
+        assertEquals(1, compareSum(MAX, BigInteger.ONE, MAX));
+        assertEquals(1, compareSum(MAX, MAX, MAX));
+        assertEquals(0, compareSum(MAX.subtract(BigInteger.ONE), BigInteger.ONE, MAX));
+        assertEquals(-1, compareSum(TWO_64.subtract(BigInteger.ONE), BigInteger.ONE, TWO_64.add(BigInteger.ONE)));
+        assertEquals(0, compareSum(TWO_64.subtract(BigInteger.ONE), BigInteger.ONE, TWO_64));
+    }
+
+    @Test
+    void matchesBigInteger() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            BigInteger a = new BigInteger(1 + random.nextInt(256), random);
+            BigInteger b = new BigInteger(1 + random.nextInt(256), random);
+            BigInteger c = new BigInteger(1 + random.nextInt(256), random);
+            BigInteger sum = a.add(b);
+            assertAdd(a, b, sum.mod(TWO_256), sum.compareTo(MAX) > 0 ? 1 : 0);
+            assertSubtract(a, b, a.subtract(b).mod(TWO_256), a.compareTo(b) < 0 ? 1 : 0);
+            assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(UInt256.compare(slot(a), 0, slot(b), 0)));
+            assertEquals(Integer.signum(sum.compareTo(c)), Integer.signum(compareSum(a, b, c)));
+        }
+    }
+
+    private static long[] slot(BigInteger value) {
+        long[] limbs = new long[UInt256.LIMBS];
+        UInt256.set(limbs, 0, value);
+        return limbs;
+    }
+
+    private static void assertAdd(BigInteger a, BigInteger b, BigInteger expected, long carry) {
+        // at an offset, as in the loan book's columns
+        long[] to = new long[3 * UInt256.LIMBS];
+        UInt256.set(to, UInt256.LIMBS, a);
+        assertEquals(carry, UInt256.add(to, UInt256.LIMBS, slot(b), 0));
+        assertEquals(expected, UInt256.get(to, UInt256.LIMBS));
+    }
+
+    private static void assertSubtract(BigInteger a, BigInteger b, BigInteger expected, long borrow) {
+        long[] to = slot(a);
+        assertEquals(borrow, UInt256.subtract(to, 0, slot(b), 0));
+        assertEquals(expected, UInt256.get(to, 0));
+    }
+
+    private static int compareSum(BigInteger a, BigInteger b, BigInteger c) {
+        return Integer.signum(UInt256.compareSum(slot(a), 0, slot(b), 0, slot(c), 0));
+    }
+}
@@ -0,0 +1,36 @@
+// SPDX-License-Identifier: MIT
+pragma solidity ^0.8.0;
+
+/**
+ * @title LendingMulticall
+ * @dev Aggregates many read-only calls against LendingPool and AssetToken
+ *      (loans, tokenToLoanId, ownerOf, tokenURI, ...) into a single eth_call,
+ *      so every result is read from the same block.
+ */
+contract LendingMulticall {
+    /**
+     * @dev Runs each call with staticcall and returns the raw results.
+     *      A failing call (e.g. ownerOf on a burned token) does not revert the
+     *      whole batch; its success flag is false and returnData holds the revert data.
+     * @param targets Contract address for each call
+     * @param callData ABI-encoded calldata for each call
+     * @return blockNumber Block the results were read at
+     * @return success Per-call success flags
+     * @return returnData Raw ABI-encoded return data per call
+     */
+    function aggregate(address[] calldata targets, bytes[] calldata callData)
+        external
+        view
+        returns (uint256 blockNumber, bool[] memory success, bytes[] memory returnData)
+    {
+        require(targets.length == callData.length, "LendingMulticall: length mismatch");
+
+        blockNumber = block.number;
+        success = new bool[](targets.length);
+        returnData = new bytes[](targets.length);
+
+        for (uint256 i = 0; i < targets.length; i++) {
+            (success[i], returnData[i]) = targets[i].staticcall(callData[i]);
+        }
+    }
+}
@@ -30,6 +30,13 @@ async function main() {
   const lendingPoolAddress = await lendingPool.getAddress();
   console.log('LendingPool deployed to:', lendingPoolAddress);
 
+  // @dev Deploy LendingMulticall for single-call, same-block batched reads
+  const LendingMulticall = await ethers.getContractFactory('LendingMulticall');
+  const multicall = await LendingMulticall.deploy();
+  await multicall.waitForDeployment();
+  const multicallAddress = await multicall.getAddress();
+  console.log('LendingMulticall deployed to:', multicallAddress);
+
   // @dev Transfer 10,000 mDAI to the LendingPool to provide initial liquidity
   const transferTx = await mockDai.transfer(lendingPoolAddress, parseUnits('10000', 18));
   await transferTx.wait();
@@ -45,6 +52,7 @@ async function main() {
     export const assetTokenAddress = "${assetTokenAddress}";
     export const mockDaiAddress = "${mockDaiAddress}";
     export const lendingPoolAddress = "${lendingPoolAddress}";
+    export const multicallAddress = "${multicallAddress}";
     export const oracleSignerAddress = "${deployer.address}";
   `;
 
@@ -0,0 +1,432 @@
+// scripts/loadSuite.js
+//
+// End-to-end load test of the Java backend's REST API. Virtual users run a
+// weighted mix of reads (loan-status, my-assets, my-loans, valuation) and
+// writes (tokenize, borrow, repay) through the stages of a ramp-up profile,
+// and latency percentiles, throughput and error rate are reported per
+// endpoint, per stage and for the whole run. Results are written as JSON so
+// runs before and after a change can be compared.
+//
+// Against a local Hardhat node (from blockchain/):
+//   npm run node                      # terminal 1
+//   npm run deploy                    # terminal 2, then start the backend
+//   PROFILE=ramp npm run loadtest:suite
+//
+// The backend can also point at backend/chainsim instead of Hardhat, to add
+// node latency or errors on purpose. Compare two result files with:
+//   node scripts/loadSuite.js --compare before.json after.json
+//
+// Environment: BASE_URL, WALLET (the backend's account, which owns the
+// tokens it borrows against), PROFILE (smoke|ramp|read-heavy|write-heavy),
+// MIX (e.g. "loanStatus=50,borrow=10" to override weights), SEED_TOKENS,
+// BORROW_AMOUNT (wei), TIMEOUT_MS, OUT (result file path).
+
+const fs = require('fs');
+const http = require('http');
+const path = require('path');
+
+const BASE_URL = process.env.BASE_URL || 'http://localhost:8080';
+const WALLET = process.env.WALLET || '0xf39Fd6e51aad88F6F4ce6aB8827279cffFb92266';
+const PROFILE = process.env.PROFILE || 'ramp';
+const SEED_TOKENS = Number(process.env.SEED_TOKENS || 20);
+const BORROW_AMOUNT = process.env.BORROW_AMOUNT || '10000000000000000000';
+const TIMEOUT_MS = Number(process.env.TIMEOUT_MS || 30000);
+const RESULTS_DIR = path.resolve(__dirname, '..', 'loadtest-results');
+
+const READ_MIX = { loanStatus: 30, myAssets: 20, myLoans: 20, valuation: 20, tokenize: 4, borrow: 3, repay: 3 };
+const WRITE_MIX = { loanStatus: 10, myAssets: 10, myLoans: 10, valuation: 10, tokenize: 20, borrow: 20, repay: 20 };
+
+// @dev Each stage ramps linearly from the previous stage's users to its own over rampMs, then holds
+const PROFILES = {
+  smoke: { mix: READ_MIX, stages: [{ users: 5, rampMs: 2000, holdMs: 10000 }] },
+  ramp: {
+    mix: READ_MIX,
+    stages: [10, 50, 100, 200, 400].map((users) => ({ users, rampMs: 5000, holdMs: 15000 })),
+  },
+  'read-heavy': {
+    mix: { ...READ_MIX, tokenize: 0, borrow: 0, repay: 0 },
+    stages: [50, 200, 800].map((users) => ({ users, rampMs: 5000, holdMs: 20000 })),
+  },
+  'write-heavy': {
+    mix: WRITE_MIX,
+    stages: [10, 25, 50].map((users) => ({ users, rampMs: 5000, holdMs: 20000 })),
+  },
+};
+
+// @dev Same keep-alive agent setup as loadTest.js, so the client is never the bottleneck
+const agent = new http.Agent({ keepAlive: true, maxSockets: Infinity });
+
+// ------------------------------------------------------------ HTTP
+
+function request(method, pathname, body) {
+  return new Promise((resolve) => {
+    const url = new URL(pathname, BASE_URL);
+    const payload = body === undefined ? undefined : Buffer.from(body);
+    const headers = payload ? { 'Content-Type': 'application/json', 'Content-Length': payload.length } : {};
+    const start = process.hrtime.bigint();
+    const req = http.request(url, { method, agent, headers, timeout: TIMEOUT_MS }, (res) => {
+      const chunks = [];
+      res.on('data', (chunk) => chunks.push(chunk));
+      res.on('end', () =>
+        resolve({
+          ok: res.statusCode < 400,
+          status: res.statusCode,
+          body: Buffer.concat(chunks).toString('utf8'),
+          ms: elapsedMs(start),
+        })
+      );
+    });
+    req.on('timeout', () => req.destroy(new Error('timeout')));
+    req.on('error', (error) => resolve({ ok: false, status: 0, body: error.message, ms: elapsedMs(start) }));
+    if (payload) req.write(payload);
+    req.end();
+  });
+}
+
+function elapsedMs(start) {
+  return Number(process.hrtime.bigint() - start) / 1e6;
+}
+
+function parseJson(body) {
+  try {
+    return JSON.parse(body);
+  } catch (error) {
+    return undefined;
+  }
+}
+
+// ------------------------------------------------------------ Chain state seen by the users
+
+// @dev Token and loan ids taken by a write are held back for a while, so a stale
+// my-assets or my-loans response cannot hand them out again before the index catches up
+const HOLD_BACK_MS = 30000;
+
+const state = {
+  freeTokens: new Set(),
+  activeLoans: new Set(),
+  knownTokens: [],
+  knownLoans: [],
+  taken: new Map(),
+  tokenCounter: 0,
+};
+
+function remember(list, id) {
+  if (!list.includes(id)) list.push(id);
+}
+
+function isHeldBack(key) {
+  const at = state.taken.get(key);
+  if (at === undefined) return false;
+  if (Date.now() - at > HOLD_BACK_MS) {
+    state.taken.delete(key);
+    return false;
+  }
+  return true;
+}
+
+function take(set, prefix) {
+  for (const id of set) {
+    set.delete(id);
+    state.taken.set(prefix + id, Date.now());
+    return id;
+  }
+  return undefined;
+}
+
+function pick(list, fallback) {
+  return list.length === 0 ? fallback : list[Math.floor(Math.random() * list.length)];
+}
+
+function onAssets(body) {
+  const assets = parseJson(body);
+  if (!Array.isArray(assets)) return;
+  for (const asset of assets) {
+    const id = String(asset.tokenId);
+    remember(state.knownTokens, id);
+    if (!isHeldBack('token:' + id)) state.freeTokens.add(id);
+  }
+}
+
+function onLoans(body) {
+  const loans = parseJson(body);
+  if (!Array.isArray(loans)) return;
+  for (const loan of loans) {
+    const id = String(loan.loanId);
+    remember(state.knownLoans, id);
+    if (!isHeldBack('loan:' + id)) state.activeLoans.add(id);
+  }
+}
+
+// ------------------------------------------------------------ Endpoints
+
+// @dev An operation returns undefined when it has nothing to act on (no free token to borrow against, no loan to repay)
+const OPERATIONS = {
+  loanStatus: () => ['GET', `/api/loan-status/${pick(state.knownLoans, 2)}`],
+  myAssets: () => ['GET', `/api/my-assets?wallet=${WALLET}`, undefined, onAssets],
+  myLoans: () => ['GET', `/api/my-loans?wallet=${WALLET}`, undefined, onLoans],
+  valuation: () => ['GET', `/api/valuation/${pick(state.knownTokens, 1)}`],
+  tokenize: () => [
+    'POST',
+    '/api/tokenize',
+    JSON.stringify({ to: WALLET, tokenURI: `ipfs://loadtest/${process.pid}/${state.tokenCounter++}` }),
+  ],
+  borrow: () => {
+    const tokenId = take(state.freeTokens, 'token:');
+    return tokenId && ['POST', '/api/borrow', `{"tokenId":${tokenId},"amount":${BORROW_AMOUNT}}`];
+  },
+  repay: () => {
+    const loanId = take(state.activeLoans, 'loan:');
+    return loanId && ['POST', '/api/repay', `{"loanId":${loanId}}`];
+  },
+};
+
+function parseMix(mix) {
+  const weights = { ...mix };
+  for (const part of (process.env.MIX || '').split(',').filter(Boolean)) {
+    const [name, weight] = part.split('=');
+    if (!(name in OPERATIONS)) throw new Error(`Unknown endpoint in MIX: ${name}`);
+    weights[name] = Number(weight);
+  }
+  const entries = Object.entries(weights).filter(([, weight]) => weight > 0);
+  const total = entries.reduce((sum, [, weight]) => sum + weight, 0);
+  return { weights, entries, total };
+}
+
+function chooseOperation(mix) {
+  let roll = Math.random() * mix.total;
+  for (const [name, weight] of mix.entries) {
+    roll -= weight;
+    if (roll < 0) return name;
+  }
+  return mix.entries[mix.entries.length - 1][0];
+}
+
+// ------------------------------------------------------------ Statistics
+
+function newRecorder() {
+  return { latencies: {}, errors: {}, skipped: {}, statuses: {} };
+}
+
+function record(recorder, name, result) {
+  (recorder.latencies[name] ||= []).push(result.ms);
+  if (!result.ok) {
+    recorder.errors[name] = (recorder.errors[name] || 0) + 1;
+    const statuses = (recorder.statuses[name] ||= {});
+    statuses[result.status] = (statuses[result.status] || 0) + 1;
+  }
+}
+
+function percentile(sorted, p) {
+  if (sorted.length === 0) return 0;
+  return sorted[Math.min(sorted.length - 1, Math.ceil((p / 100) * sorted.length) - 1)];
+}
+
+function round(value) {
+  return Math.round(value * 100) / 100;
+}
+
+function summarize(recorder, seconds) {
+  const endpoints = {};
+  const all = [];
+  let errors = 0;
+  for (const name of Object.keys(OPERATIONS)) {
+    const latencies = (recorder.latencies[name] || []).slice().sort((a, b) => a - b);
+    const failed = recorder.errors[name] || 0;
+    if (latencies.length === 0 && !recorder.skipped[name]) continue;
+    all.push(...latencies);
+    errors += failed;
+    endpoints[name] = summary(latencies, failed, seconds);
+    endpoints[name].skipped = recorder.skipped[name] || 0;
+    if (recorder.statuses[name]) endpoints[name].errorStatuses = recorder.statuses[name];
+  }
+  all.sort((a, b) => a - b);
+  return { endpoints, overall: summary(all, errors, seconds) };
+}
+
+function summary(sorted, errors, seconds) {
+  const requests = sorted.length;
+  return {
+    requests,
+    errors,
+    errorRate: requests === 0 ? 0 : round(errors / requests),
+    throughput: round(requests / seconds),
+    mean: round(requests === 0 ? 0 : sorted.reduce((sum, ms) => sum + ms, 0) / requests),
+    p50: round(percentile(sorted, 50)),
+    p95: round(percentile(sorted, 95)),
+    p99: round(percentile(sorted, 99)),
+    max: round(sorted.length === 0 ? 0 : sorted[sorted.length - 1]),
+  };
+}
+
+// ------------------------------------------------------------ Run
+
+async function seed() {
+  console.log(`Seeding ${SEED_TOKENS} tokens for ${WALLET}`);
+  for (let i = 0; i < SEED_TOKENS; i++) {
+    const result = await request(
+      'POST',
+      '/api/tokenize',
+      JSON.stringify({ to: WALLET, tokenURI: `ipfs://loadtest/${process.pid}/seed-${i}` })
+    );
+    if (!result.ok) throw new Error(`Seeding failed: ${result.status} ${result.body}`);
+  }
+
+  // @dev Wait for the backend's index to pick the mints up
+  const deadline = Date.now() + 60000;
+  while (state.freeTokens.size < SEED_TOKENS && Date.now() < deadline) {
+    onAssets((await request('GET', `/api/my-assets?wallet=${WALLET}`)).body);
+    onLoans((await request('GET', `/api/my-loans?wallet=${WALLET}`)).body);
+    if (state.freeTokens.size < SEED_TOKENS) await new Promise((resolve) => setTimeout(resolve, 500));
+  }
+  console.log(`Seeded: ${state.freeTokens.size} free tokens, ${state.activeLoans.size} active loans`);
+}
+
+async function runStages(profile, mix) {
+  const overall = newRecorder();
+  const control = { done: false, current: newRecorder() };
+  const alive = [];
+  const workers = [];
+  const stages = [];
+  let active = 0;
+
+  const user = async (index) => {
+    try {
+      while (index < active && !control.done) {
+        const name = chooseOperation(mix);
+        const operation = OPERATIONS[name]();
+        if (!operation) {
+          control.current.skipped[name] = (control.current.skipped[name] || 0) + 1;
+          overall.skipped[name] = (overall.skipped[name] || 0) + 1;
+          // @dev Nothing to act on yet: back off briefly instead of spinning
+          await new Promise((resolve) => setTimeout(resolve, 50));
+          continue;
+        }
+        const [method, pathname, body, onBody] = operation;
+        const result = await request(method, pathname, body);
+        if (result.ok && onBody) onBody(result.body);
+        record(control.current, name, result);
+        record(overall, name, result);
+      }
+    } finally {
+      alive[index] = false;
+    }
+  };
+
+  // @dev Users above the target leave after their current request
+  const setUsers = (target) => {
+    active = target;
+    for (let i = 0; i < target; i++) {
+      if (!alive[i]) {
+        alive[i] = true;
+        workers.push(user(i));
+      }
+    }
+  };
+
+  const started = Date.now();
+  for (const stage of profile.stages) {
+    const from = active;
+    const stageStart = Date.now();
+    control.current = newRecorder();
+
+    const steps = Math.max(1, Math.ceil(stage.rampMs / 250));
+    for (let step = 1; step <= steps; step++) {
+      setUsers(Math.round(from + ((stage.users - from) * step) / steps));
+      await new Promise((resolve) => setTimeout(resolve, stage.rampMs / steps));
+    }
+    await new Promise((resolve) => setTimeout(resolve, stage.holdMs));
+
+    const seconds = (Date.now() - stageStart) / 1000;
+    const result = { users: stage.users, rampMs: stage.rampMs, holdMs: stage.holdMs, ...summarize(control.current, seconds) };
+    stages.push(result);
+    printStage(result);
+  }
+
+  control.done = true;
+  await Promise.all(workers);
+  return { stages, ...summarize(overall, (Date.now() - started) / 1000) };
+}
+
+function printStage(stage) {
+  const o = stage.overall;
+  console.log(
+    `users=${stage.users}\trequests=${o.requests}\trps=${o.throughput}\tp50=${o.p50}ms\tp95=${o.p95}ms\tp99=${o.p99}ms\tmax=${o.max}ms\terrors=${o.errors}`
+  );
+}
+
+function printTable(endpoints) {
+  const rows = {};
+  for (const [name, s] of Object.entries(endpoints)) {
+    rows[name] = {
+      requests: s.requests,
+      rps: s.throughput,
+      p50: s.p50,
+      p95: s.p95,
+      p99: s.p99,
+      max: s.max,
+      errorRate: s.errorRate,
+      skipped: s.skipped,
+    };
+  }
+  console.table(rows);
+}
+
+async function run() {
+  const profile = PROFILES[PROFILE];
+  if (!profile) throw new Error(`Unknown PROFILE ${PROFILE}, expected one of ${Object.keys(PROFILES).join(', ')}`);
+  const mix = parseMix(profile.mix);
+
+  await seed();
+  console.log(`Load suite: ${BASE_URL}, profile ${PROFILE}, ${profile.stages.length} stages`);
+  const startedAt = new Date();
+  const results = await runStages(profile, mix);
+
+  console.log('\nPer endpoint, whole run:');
+  printTable(results.endpoints);
+
+  const report = {
+    startedAt: startedAt.toISOString(),
+    finishedAt: new Date().toISOString(),
+    baseUrl: BASE_URL,
+    profile: PROFILE,
+    mix: mix.weights,
+    borrowAmount: BORROW_AMOUNT,
+    ...results,
+  };
+  const out = process.env.OUT || path.join(RESULTS_DIR, `${PROFILE}-${startedAt.toISOString().replace(/[:.]/g, '-')}.json`);
+  fs.mkdirSync(path.dirname(out), { recursive: true });
+  fs.writeFileSync(out, JSON.stringify(report, null, 2));
+  console.log(`Results written to ${out}`);
+}
+
+// ------------------------------------------------------------ Compare
+
+function compare(beforeFile, afterFile) {
+  const before = JSON.parse(fs.readFileSync(beforeFile, 'utf8'));
+  const after = JSON.parse(fs.readFileSync(afterFile, 'utf8'));
+  const change = (a, b) => (a === 0 ? 'n/a' : `${b >= a ? '+' : ''}${round(((b - a) / a) * 100)}%`);
+
+  const rows = {};
+  const names = new Set([...Object.keys(before.endpoints), ...Object.keys(after.endpoints), 'overall']);
+  for (const name of names) {
+    const a = name === 'overall' ? before.overall : before.endpoints[name];
+    const b = name === 'overall' ? after.overall : after.endpoints[name];
+    if (!a || !b) continue;
+    rows[name] = {
+      rps: `${a.throughput} -> ${b.throughput} (${change(a.throughput, b.throughput)})`,
+      p50: `${a.p50} -> ${b.p50} (${change(a.p50, b.p50)})`,
+      p99: `${a.p99} -> ${b.p99} (${change(a.p99, b.p99)})`,
+      errorRate: `${a.errorRate} -> ${b.errorRate}`,
+    };
+  }
+  console.log(`${beforeFile} (${before.profile}) vs ${afterFile} (${after.profile})`);
+  console.table(rows);
+}
+
+const args = process.argv.slice(2);
+const main = args[0] === '--compare' ? async () => compare(args[1], args[2]) : run;
+
+main().catch((error) => {
+  console.error(error);
+  process.exitCode = 1;
+});
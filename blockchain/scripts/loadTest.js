@@ -0,0 +1,87 @@
+// scripts/loadTest.js
+//
+// Concurrency sweep against the Java backend: for each level, N virtual users
+// hit a read endpoint back to back for a fixed time, then throughput and
+// latency are printed. Run it against a build before and after a change to
+// see how the backend scales with concurrent requests waiting on the chain.
+//
+//   BASE_URL=http://localhost:8080 LEVELS=50,200,800,2000 DURATION_MS=10000 node scripts/loadTest.js
+
+const http = require('http');
+
+const BASE_URL = process.env.BASE_URL || 'http://localhost:8080';
+const PATH = process.env.LOAD_PATH || '/api/loan-status/1';
+const LEVELS = (process.env.LEVELS || '50,100,200,400,800,1600').split(',').map(Number);
+const DURATION_MS = Number(process.env.DURATION_MS || 10000);
+const TIMEOUT_MS = Number(process.env.TIMEOUT_MS || 30000);
+
+// @dev One keep-alive agent without a socket cap, so the client is never the bottleneck
+const agent = new http.Agent({ keepAlive: true, maxSockets: Infinity });
+
+function request(url) {
+  return new Promise((resolve) => {
+    const start = process.hrtime.bigint();
+    const req = http.get(url, { agent, timeout: TIMEOUT_MS }, (res) => {
+      res.resume();
+      res.on('end', () => resolve({ ok: res.statusCode < 400, ms: elapsedMs(start) }));
+    });
+    req.on('timeout', () => req.destroy(new Error('timeout')));
+    req.on('error', () => resolve({ ok: false, ms: elapsedMs(start) }));
+  });
+}
+
+function elapsedMs(start) {
+  return Number(process.hrtime.bigint() - start) / 1e6;
+}
+
+function percentile(sorted, p) {
+  if (sorted.length === 0) return 0;
+  return sorted[Math.min(sorted.length - 1, Math.floor((p / 100) * sorted.length))];
+}
+
+async function runLevel(concurrency) {
+  const url = new URL(PATH, BASE_URL);
+  const latencies = [];
+  let errors = 0;
+  const deadline = Date.now() + DURATION_MS;
+
+  const user = async () => {
+    while (Date.now() < deadline) {
+      const { ok, ms } = await request(url);
+      if (ok) latencies.push(ms);
+      else errors++;
+    }
+  };
+
+  const started = Date.now();
+  await Promise.all(Array.from({ length: concurrency }, user));
+  const seconds = (Date.now() - started) / 1000;
+
+  latencies.sort((a, b) => a - b);
+  return {
+    concurrency,
+    requests: latencies.length + errors,
+    rps: Math.round((latencies.length / seconds) * 10) / 10,
+    p50: Math.round(percentile(latencies, 50)),
+    p99: Math.round(percentile(latencies, 99)),
+    errors,
+  };
+}
+
+async function main() {
+  console.log(`Load test: GET ${BASE_URL}${PATH}, ${DURATION_MS} ms per level`);
+  const results = [];
+  for (const level of LEVELS) {
+    const result = await runLevel(level);
+    results.push(result);
+    console.log(
+      `c=${result.concurrency}\trequests=${result.requests}\trps=${result.rps}\tp50=${result.p50}ms\tp99=${result.p99}ms\terrors=${result.errors}`
+    );
+  }
+  console.table(results);
+}
+
+main().catch((error) => {
+  console.error(error);
+  process.exitCode = 1;
+});
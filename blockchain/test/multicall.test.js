@@ -0,0 +1,83 @@
+/**
+ * LendingMulticall: deploys the NFT, stablecoin and pool, opens a loan for Alice, and checks that a
+ * single aggregate() call returns loans(), tokenToLoanId(), ownerOf() and tokenURI() results from
+ * the same block, with failing calls reported per entry instead of reverting the whole batch.
+ */
+
+const { expect } = require("chai");
+const { ethers } = require("hardhat");
+
+describe("LendingMulticall", function () {
+  let assetToken, stablecoin, pool, multicall;
+  let owner, alice, oracle;
+
+  beforeEach(async function () {
+    [owner, alice, oracle] = await ethers.getSigners();
+    const AT = await ethers.getContractFactory("AssetToken");
+    assetToken = await AT.deploy();
+    await assetToken.waitForDeployment();
+
+    const MD = await ethers.getContractFactory("MockDAI");
+    stablecoin = await MD.deploy();
+    await stablecoin.waitForDeployment();
+
+    const LP = await ethers.getContractFactory("LendingPool");
+    pool = await LP.deploy(assetToken.target, stablecoin.target);
+    await pool.waitForDeployment();
+
+    const MC = await ethers.getContractFactory("LendingMulticall");
+    multicall = await MC.deploy();
+    await multicall.waitForDeployment();
+
+    await pool.setOracleSigner(oracle.address);
+    await stablecoin.mint(pool.target, ethers.parseEther("10000")); // Fund pool liquidity
+    await assetToken.mint(alice.address, "Asset", "uri://1");      // Alice owns NFT #1
+    await assetToken.mint(alice.address, "Asset", "uri://2");      // Alice owns NFT #2
+
+    // Open loan #2 against NFT #1
+    const valuation = ethers.parseEther("10");
+    const encoded = new ethers.AbiCoder().encode(["uint256", "uint256"], [1n, valuation]);
+    const sig = await oracle.signMessage(ethers.getBytes(ethers.keccak256(encoded)));
+    await assetToken.connect(alice).approve(pool.target, 1n);
+    await pool.connect(alice).borrow(1n, ethers.parseEther("7"), valuation, sig);
+  });
+
+  it("returns pool and token views from one call at the same block", async function () {
+    const targets = [pool.target, pool.target, assetToken.target, assetToken.target];
+    const callData = [
+      pool.interface.encodeFunctionData("loans", [2n]),
+      pool.interface.encodeFunctionData("tokenToLoanId", [1n]),
+      assetToken.interface.encodeFunctionData("ownerOf", [2n]),
+      assetToken.interface.encodeFunctionData("tokenURI", [2n]),
+    ];
+
+    const [blockNumber, success, returnData] = await multicall.aggregate(targets, callData);
+
+    expect(blockNumber).to.equal(BigInt(await ethers.provider.getBlockNumber())); // Read at current block
+    expect(success).to.deep.equal([true, true, true, true]);
+
+    const loan = pool.interface.decodeFunctionResult("loans", returnData[0]);
+    expect(loan.tokenId).to.equal(1n);
+    expect(loan.amount).to.equal(ethers.parseEther("7"));
+    expect(loan.isActive).to.be.true;
+
+    expect(pool.interface.decodeFunctionResult("tokenToLoanId", returnData[1])[0]).to.equal(2n);
+    expect(assetToken.interface.decodeFunctionResult("ownerOf", returnData[2])[0]).to.equal(alice.address);
+    expect(assetToken.interface.decodeFunctionResult("tokenURI", returnData[3])[0]).to.equal("uri://2");
+  });
+
+  it("reports failing calls without reverting the batch", async function () {
+    const [, success] = await multicall.aggregate(
+      [assetToken.target, assetToken.target],
+      [
+        assetToken.interface.encodeFunctionData("ownerOf", [999n]), // Nonexistent token reverts
+        assetToken.interface.encodeFunctionData("ownerOf", [2n]),
+      ]
+    );
+    expect(success).to.deep.equal([false, true]);
+  });
+
+  it("reverts on mismatched input lengths", async function () {
+    await expect(multicall.aggregate([pool.target], [])).to.be.revertedWith("LendingMulticall: length mismatch");
+  });
+});